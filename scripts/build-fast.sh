@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Empacota o perfil de partida rápida: AOT (-Pfast-startup), jar extraído e arquivo AppCDS.
+# Saída em target/fast/: application/fiadopay-sim-*.jar (+ lib/) e app.jsa
+# Uso: scripts/build-fast.sh        (MVN=mvn para não usar o wrapper)
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+MVN=${MVN:-./mvnw}
+OUT=target/fast
+
+$MVN -B -q -DskipTests -Pfast-startup package
+JAR=$(ls target/fiadopay-sim-*.jar | grep -v original | head -1)
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+# CDS precisa de um classpath de jars "de verdade", não do fat jar
+java -Djarmode=tools -jar "$JAR" extract --destination "$OUT/application"
+APP="$OUT/application/$(basename "$JAR")"
+
+# Execução de treino: sobe o contexto, para logo após o refresh e grava as classes carregadas
+java -XX:ArchiveClassesAtExit="$OUT/app.jsa" \
+     -Dspring.context.exit=onRefresh \
+     -Dspring.aot.enabled=true \
+     -Dspring.profiles.active=fast \
+     -jar "$APP" > "$OUT/training.log" 2>&1
+
+echo "AOT + CDS prontos:"
+echo "  java -XX:SharedArchiveFile=$OUT/app.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=fast -jar $APP"
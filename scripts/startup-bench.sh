@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# Mede o tempo até o primeiro POST /fiadopay/gateway/payments bem-sucedido (201), do launch da JVM
+# até a resposta, incluindo cadastro do merchant e emissão do token.
+# Compara: jar padrão | perfil fast + AOT | perfil fast + AOT + AppCDS.
+# Uso: scripts/startup-bench.sh [execuções por modo, padrão 5]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+PORT=${PORT:-18090}
+BASE="http://localhost:$PORT/fiadopay"
+OUT=target/fast
+
+# Jar padrão (sem AOT) primeiro; o build do perfil fast sobrescreve target/*.jar
+${MVN:-./mvnw} -B -q -DskipTests package
+mkdir -p target/bench
+cp "$(ls target/fiadopay-sim-*.jar | grep -v original | head -1)" target/bench/baseline.jar
+MVN=${MVN:-./mvnw} scripts/build-fast.sh > /dev/null
+APP=$(ls "$OUT"/application/fiadopay-sim-*.jar)
+
+now_ms() { date +%s%3N; }
+
+first_payment_ms() {
+    local start pid merchant client secret token code
+    start=$(now_ms)
+    "$@" --server.port="$PORT" > target/bench/app.log 2>&1 &
+    pid=$!
+    until merchant=$(curl -sf -XPOST "$BASE/admin/merchants" -H 'Content-Type: application/json' \
+            -d "{\"name\":\"bench-$RANDOM$RANDOM\",\"webhookUrl\":\"http://localhost:1/hook\"}"); do
+        sleep 0.01
+    done
+    client=$(sed -E 's/.*"clientId":"([^"]+)".*/\1/' <<< "$merchant")
+    secret=$(sed -E 's/.*"clientSecret":"([^"]+)".*/\1/' <<< "$merchant")
+    token=$(curl -sf -XPOST "$BASE/auth/token" -H 'Content-Type: application/json' \
+            -d "{\"client_id\":\"$client\",\"client_secret\":\"$secret\"}" | sed -E 's/.*"access_token":"([^"]+)".*/\1/')
+    code=$(curl -s -o /dev/null -w '%{http_code}' -XPOST "$BASE/gateway/payments" \
+            -H "Authorization: Bearer $token" -H 'Content-Type: application/json' \
+            -d '{"method":"CARD","currency":"BRL","amount":100,"installments":3}')
+    local elapsed=$(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    [ "$code" = "201" ] || { echo "POST /payments devolveu $code" >&2; exit 1; }
+    echo "$elapsed"
+}
+
+bench() {
+    local name=$1; shift
+    local times=()
+    for _ in $(seq "$RUNS"); do times+=("$(first_payment_ms "$@")"); done
+    local sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+    printf '%-22s mediana %5d ms | min %5d ms | max %5d ms\n' \
+        "$name" "${sorted[$(( RUNS / 2 ))]}" "${sorted[0]}" "${sorted[$(( RUNS - 1 ))]}"
+}
+
+echo "Tempo até o primeiro POST /payments ($RUNS execuções por modo)"
+bench "padrão"             java -jar target/bench/baseline.jar --spring.jpa.show-sql=false
+bench "fast + AOT"         java -Dspring.aot.enabled=true -Dspring.profiles.active=fast -jar "$APP"
+bench "fast + AOT + CDS"   java -XX:SharedArchiveFile="$OUT/app.jsa" -Dspring.aot.enabled=true \
+                                -Dspring.profiles.active=fast -jar "$APP"
@@ -0,0 +1,150 @@
+package edu.ucsal.fiadopay.archive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.config.RetentionProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Arquivo frio em disco local.
+ * Layout: {archive-dir}/{tipo}/{yyyy-MM-dd}/batch-{millis}-{seq}.jsonl.gz (um registro JSON por linha),
+ * mais o índice "id TAB arquivo" para achar um registro sem abrir todas as partições.
+ * O índice é dividido pelo hash do id em {tipo}/index/{00..3f}.tsv: uma busca lê só o balde do id,
+ * não o índice inteiro.
+ * Os arquivos são só de escrita e leitura; nada é reescrito.
+ */
+@Component
+public class ArchiveStore {
+
+    public enum Kind {
+        PAYMENTS("payments"), DELIVERIES("deliveries");
+
+        private final String dir;
+
+        Kind(String dir) {
+            this.dir = dir;
+        }
+    }
+
+    private static final int INDEX_BUCKETS = 64;
+
+    private final Path root;
+    private final ObjectMapper mapper;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ArchiveStore(RetentionProperties props, ObjectMapper mapper) {
+        this.root = Path.of(props.getArchiveDir());
+        this.mapper = mapper;
+    }
+
+    /** Grava um lote numa partição e registra os ids no índice; só retorna depois do fsync. */
+    public <T> Path write(Kind kind, LocalDate day, List<T> records, Function<T, String> idOf) {
+        return write(kind, day, records, idOf, r -> r);
+    }
+
+    /** Como {@link #write(Kind, LocalDate, List, Function)}, gravando view(r) no lugar do próprio registro. */
+    public synchronized <T> Path write(Kind kind, LocalDate day, List<T> records, Function<T, String> idOf,
+                                       Function<T, ?> view) {
+        Path dir = root.resolve(kind.dir).resolve(day.toString());
+        Path file = dir.resolve("batch-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet() + ".jsonl.gz");
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                GZIPOutputStream gz = new GZIPOutputStream(Channels.newOutputStream(ch), 64 * 1024);
+                Writer w = new BufferedWriter(new OutputStreamWriter(gz, StandardCharsets.UTF_8));
+                for (T r : records) {
+                    w.write(mapper.writeValueAsString(view.apply(r)));
+                    w.write('\n');
+                }
+                w.flush();
+                gz.finish();
+                ch.force(true);
+            }
+
+            String relative = root.resolve(kind.dir).relativize(file).toString();
+            Map<Path, StringBuilder> index = new TreeMap<>();
+            for (T r : records) {
+                String id = idOf.apply(r);
+                index.computeIfAbsent(bucketOf(kind, id), b -> new StringBuilder())
+                        .append(id).append('\t').append(relative).append('\n');
+            }
+            Files.createDirectories(root.resolve(kind.dir).resolve("index"));
+            for (Map.Entry<Path, StringBuilder> bucket : index.entrySet()) {
+                try (FileChannel ch = FileChannel.open(bucket.getKey(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    ch.write(StandardCharsets.UTF_8.encode(bucket.getValue().toString()));
+                    ch.force(true);
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Optional<JsonNode> find(Kind kind, String id) {
+        String file = lookup(bucketOf(kind, id), id);
+        if (file == null) return Optional.empty();
+
+        Path path = root.resolve(kind.dir).resolve(file);
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                JsonNode node = mapper.readTree(line);
+                if (id.equals(node.path("id").asText())) return Optional.of(node);
+            }
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Optional.empty();
+    }
+
+    // Última ocorrência vence: um registro regravado (queda antes do DELETE) aponta para o arquivo mais novo
+    private String lookup(Path index, String id) {
+        String file = null;
+        String prefix = id + "\t";
+        try (BufferedReader r = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith(prefix)) file = line.substring(prefix.length());
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+
+    private Path bucketOf(Kind kind, String id) {
+        String bucket = "%02x".formatted(Math.floorMod(id.hashCode(), INDEX_BUCKETS));
+        return root.resolve(kind.dir).resolve("index").resolve(bucket + ".tsv");
+    }
+}
@@ -0,0 +1,23 @@
+package edu.ucsal.fiadopay.archive;
+
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Registro de uma entrega no arquivo: só as colunas e o "data" do evento já decodificado.
+ * Os campos em memória da entidade (@Transient) e os bytes em Smile não vão para o arquivo.
+ */
+public record ArchivedDelivery(Long id, String eventId, String eventType, String paymentId, Long merchantId,
+                               Long sequence, String targetUrl, PayloadFormat format, int attempts,
+                               boolean delivered, Instant lastAttemptAt, Instant createdAt,
+                               Map<String, Object> data) {
+
+    static ArchivedDelivery of(WebhookDelivery d, Map<String, Object> data) {
+        return new ArchivedDelivery(d.getId(), d.getEventId(), d.getEventType(), d.getPaymentId(), d.getMerchantId(),
+                d.getSequence(), d.getTargetUrl(), d.getFormat(), d.getAttempts(), d.isDelivered(),
+                d.getLastAttemptAt(), d.getCreatedAt(), data);
+    }
+}
@@ -0,0 +1,178 @@
+package edu.ucsal.fiadopay.archive;
+
+import edu.ucsal.fiadopay.config.RetentionProperties;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.repo.PaymentRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.service.PaymentResponseCache;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import edu.ucsal.fiadopay.webhook.WebhookPayloadCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Job de retenção: move para o {@link ArchiveStore} o que passou da política e apaga das tabelas quentes.
+ * Trabalha em lotes limitados (batch-size x max-batches-per-run). Cada lote roda numa transação:
+ * lê, apaga com um DELETE condicional (a linha ainda precisa estar na política, senão mudou depois da
+ * leitura, ex.: um reembolso) e grava no arquivo só as linhas que o DELETE devolveu. O arquivo é
+ * sincronizado em disco antes do commit. Uma queda no meio deixa no máximo duplicatas no arquivo, nunca perda.
+ * Cada shard é drenado por vez, com o próprio limite de lotes.
+ * Entregas vão para o arquivo como {@link ArchivedDelivery}, com o payload decodificado.
+ */
+@Service
+@RequiredArgsConstructor
+public class RetentionService {
+
+    private static final List<Payment.Status> SETTLED = List.of(
+            Payment.Status.APPROVED, Payment.Status.DECLINED, Payment.Status.EXPIRED, Payment.Status.REFUNDED);
+
+    // O OLD TABLE do H2 devolve as linhas que o próprio DELETE removeu (mesmo padrão do FINAL TABLE da expiração)
+    private static final String DELETE_PAYMENTS_SQL = """
+            SELECT id FROM OLD TABLE (
+              DELETE FROM payment
+              WHERE id IN (%s) AND status IN ('APPROVED', 'DECLINED', 'EXPIRED', 'REFUNDED') AND updated_at < ?)""";
+
+    private static final String DELETE_DELIVERIES_SQL = """
+            SELECT id FROM OLD TABLE (
+              DELETE FROM webhook_delivery
+              WHERE id IN (%s) AND delivered = TRUE AND last_attempt_at < ?)""";
+
+    // Os bytes do evento só são lidos aqui, das entregas que o DELETE acima já removeu
+    private static final String DELETE_PAYLOADS_SQL = """
+            SELECT id, data FROM OLD TABLE (DELETE FROM webhook_payload WHERE id IN (%s))""";
+
+    private final PaymentRepository payments;
+    private final WebhookDeliveryRepository deliveries;
+    private final ArchiveStore archive;
+    private final RetentionProperties props;
+    private final ShardRouter shards;
+    private final PaymentResponseCache responseCache;
+    private final WebhookPayloadCodec codec;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    @Scheduled(initialDelayString = "${fiadopay.retention.initial-delay:PT5M}",
+               fixedDelayString = "${fiadopay.retention.interval:PT1H}")
+    public void run() {
+        if (!props.isEnabled()) return;
+        archiveDeliveries();
+        archivePayments();
+    }
+
+    public int archivePayments() {
+        Duration keep = props.getSettledPayments();
+        if (keep == null || keep.isZero()) return 0;
+        Instant cutoff = Instant.now().minus(keep);
+        return drain(ArchiveStore.Kind.PAYMENTS,
+                () -> payments.findByStatusInAndUpdatedAtBeforeOrderByUpdatedAt(SETTLED, cutoff, firstBatch()),
+                Payment::getId, Payment::getUpdatedAt, Function.identity(),
+                batch -> {
+                    Set<String> deleted = deleteReturning(DELETE_PAYMENTS_SQL, batch.stream().map(Payment::getId).toList(), cutoff);
+                    // Só depois do commit: antes dele um GET ainda leria (e recolocaria no cache) a linha apagada
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            deleted.forEach(responseCache::invalidate);
+                        }
+                    });
+                    return deleted;
+                });
+    }
+
+    public int archiveDeliveries() {
+        Duration keep = props.getDeliveredWebhooks();
+        if (keep == null || keep.isZero()) return 0;
+        Instant cutoff = Instant.now().minus(keep);
+        return drain(ArchiveStore.Kind.DELIVERIES,
+                () -> deliveries.findByDeliveredTrueAndLastAttemptAtBeforeOrderByLastAttemptAt(cutoff, firstBatch()),
+                d -> String.valueOf(d.getId()), WebhookDelivery::getLastAttemptAt,
+                d -> ArchivedDelivery.of(d, d.getPayloadData() == null ? null : codec.unpack(d.getPayloadData())),
+                batch -> {
+                    Set<String> deleted = deleteReturning(DELETE_DELIVERIES_SQL,
+                            batch.stream().map(d -> String.valueOf(d.getId())).toList(), cutoff);
+                    attachPayloads(batch, deleted);
+                    return deleted;
+                });
+    }
+
+    // O lote vem do banco sem payloadData; a cópia arquivada leva o payload que sai da tabela quente
+    private void attachPayloads(List<WebhookDelivery> batch, Set<String> deleted) {
+        if (deleted.isEmpty()) return;
+        Map<String, byte[]> data = new HashMap<>();
+        jdbc.query(DELETE_PAYLOADS_SQL.formatted(String.join(",", Collections.nCopies(deleted.size(), "?"))),
+                rs -> { data.put(rs.getString("id"), rs.getBytes("data")); }, deleted.toArray());
+        batch.forEach(d -> d.setPayloadData(data.get(String.valueOf(d.getId()))));
+    }
+
+    private Set<String> deleteReturning(String sql, List<String> ids, Instant cutoff) {
+        List<Object> args = new ArrayList<>(ids);
+        args.add(Timestamp.from(cutoff));
+        return new HashSet<>(jdbc.queryForList(
+                sql.formatted(String.join(",", Collections.nCopies(ids.size(), "?"))), String.class, args.toArray()));
+    }
+
+    private <T> int drain(ArchiveStore.Kind kind, Supplier<List<T>> nextBatch,
+                          Function<T, String> idOf, Function<T, Instant> dateOf, Function<T, ?> view,
+                          Function<List<T>, Set<String>> delete) {
+        AtomicInteger total = new AtomicInteger();
+        shards.forEach(shard -> total.addAndGet(drainShard(kind, nextBatch, idOf, dateOf, view, delete)));
+        return total.get();
+    }
+
+    private <T> int drainShard(ArchiveStore.Kind kind, Supplier<List<T>> nextBatch,
+                               Function<T, String> idOf, Function<T, Instant> dateOf, Function<T, ?> view,
+                               Function<List<T>, Set<String>> delete) {
+        int total = 0;
+        for (int i = 0; i < props.getMaxBatchesPerRun(); i++) {
+            Drained drained = tx.execute(status -> {
+                List<T> batch = nextBatch.get();
+                if (batch.isEmpty()) return new Drained(0, 0);
+
+                // Só vai para o arquivo o que o DELETE realmente removeu; o resto mudou depois da leitura
+                Set<String> deleted = delete.apply(batch);
+                List<T> gone = batch.stream().filter(r -> deleted.contains(idOf.apply(r))).toList();
+
+                // Um arquivo por dia do lote (partição pela data do próprio registro)
+                Map<LocalDate, List<T>> byDay = gone.stream().collect(Collectors.groupingBy(
+                        r -> LocalDate.ofInstant(dateOf.apply(r), ZoneOffset.UTC), TreeMap::new, Collectors.toList()));
+                byDay.forEach((day, records) -> archive.write(kind, day, records, idOf, view));
+                return new Drained(batch.size(), gone.size());
+            });
+            total += drained.archived();
+            if (drained.read() < props.getBatchSize()) break;
+        }
+        return total;
+    }
+
+    private PageRequest firstBatch() {
+        // Sempre a primeira página: o lote anterior já saiu da tabela
+        return PageRequest.of(0, props.getBatchSize());
+    }
+
+    private record Drained(int read, int archived) {}
+}
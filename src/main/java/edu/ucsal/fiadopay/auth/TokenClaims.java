@@ -0,0 +1,5 @@
+package edu.ucsal.fiadopay.auth;
+
+import java.time.Instant;
+
+public record TokenClaims(long merchantId, String jti, Instant expiresAt) {}
@@ -0,0 +1,57 @@
+package edu.ucsal.fiadopay.auth;
+
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lista de revogação em memória consultada a cada verificação de token.
+ * Merchants bloqueados invalidam todos os seus tokens; um jti revogado vale só até o exp dele,
+ * depois disso a própria expiração já recusa o token e a entrada é descartada.
+ */
+@Component
+public class TokenRevocations {
+
+    private final MerchantRepository merchants;
+    private final Set<Long> blockedMerchants = ConcurrentHashMap.newKeySet();
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+
+    public TokenRevocations(MerchantRepository merchants) {
+        this.merchants = merchants;
+    }
+
+    @PostConstruct
+    void loadBlocked() {
+        merchants.findByStatus(Merchant.Status.BLOCKED)
+                .forEach(m -> blockedMerchants.add(m.getId()));
+    }
+
+    public boolean isRevoked(TokenClaims claims) {
+        return blockedMerchants.contains(claims.merchantId()) || revokedTokens.containsKey(claims.jti());
+    }
+
+    public void revoke(TokenClaims claims) {
+        revokedTokens.put(claims.jti(), claims.expiresAt());
+    }
+
+    public void block(long merchantId) {
+        blockedMerchants.add(merchantId);
+    }
+
+    public void unblock(long merchantId) {
+        blockedMerchants.remove(merchantId);
+    }
+
+    @Scheduled(fixedDelayString = "${fiadopay.auth.revocation-purge-ms:60000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revokedTokens.values().removeIf(exp -> !now.isBefore(exp));
+    }
+}
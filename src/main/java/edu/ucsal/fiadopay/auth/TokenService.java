@@ -0,0 +1,134 @@
+package edu.ucsal.fiadopay.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.dto.response.TokenResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tokens de acesso assinados, no formato de um JWT HS256: header.payload.assinatura em Base64URL.
+ * O payload leva sub (merchantId), jti, iat e exp; a verificação confere a assinatura e a validade
+ * sem consultar o banco. Bloqueio de merchant e revogação de token ficam em {@link TokenRevocations}.
+ */
+@Service
+public class TokenService {
+
+    private static final String HEADER = encode("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+    private static final String BEARER = "Bearer ";
+    private static final Base64.Decoder B64_DECODER = Base64.getUrlDecoder();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TokenRevocations revocations;
+    private final Duration ttl;
+    // Mac não é thread-safe; cada thread clona o protótipo já inicializado com a chave
+    private final ThreadLocal<Mac> mac;
+
+    public TokenService(@Value("${fiadopay.auth.token-secret}") String secret,
+                        @Value("${fiadopay.auth.token-ttl:PT1H}") Duration ttl,
+                        TokenRevocations revocations) {
+        this.ttl = ttl;
+        this.revocations = revocations;
+        Mac prototype = newMac(secret);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                return newMac(secret);
+            }
+        });
+    }
+
+    public TokenResponse issue(Merchant merchant) {
+        long now = Instant.now().getEpochSecond();
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", String.valueOf(merchant.getId()));
+        claims.put("jti", UUID.randomUUID().toString().replace("-", ""));
+        claims.put("iat", now);
+        claims.put("exp", now + ttl.toSeconds());
+        try {
+            String signingInput = HEADER + "." + encode(mapper.writeValueAsBytes(claims));
+            return new TokenResponse(signingInput + "." + encode(sign(signingInput)), "Bearer", ttl.toSeconds());
+        } catch (Exception e) {
+            throw new IllegalStateException("Falha ao emitir token", e);
+        }
+    }
+
+    /** Valida o header Authorization e devolve as claims; qualquer problema vira 401. */
+    public TokenClaims verify(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith(BEARER)) throw unauthorized();
+        String token = authHeader.substring(BEARER.length());
+
+        int first = token.indexOf('.');
+        int last = token.lastIndexOf('.');
+        if (first <= 0 || last == first) throw unauthorized();
+
+        byte[] signature;
+        try {
+            signature = B64_DECODER.decode(token.substring(last + 1));
+        } catch (IllegalArgumentException e) {
+            throw unauthorized();
+        }
+        if (!token.startsWith(HEADER + ".") || first != HEADER.length()
+                || !MessageDigest.isEqual(sign(token.substring(0, last)), signature)) {
+            throw unauthorized();
+        }
+
+        TokenClaims claims;
+        try {
+            JsonNode payload = mapper.readTree(B64_DECODER.decode(token.substring(first + 1, last)));
+            claims = new TokenClaims(
+                    Long.parseLong(payload.path("sub").asText()),
+                    payload.path("jti").asText(),
+                    Instant.ofEpochSecond(payload.path("exp").asLong()));
+        } catch (Exception e) {
+            throw unauthorized();
+        }
+
+        if (!Instant.now().isBefore(claims.expiresAt())) throw unauthorized();
+        if (revocations.isRevoked(claims)) throw unauthorized();
+        return claims;
+    }
+
+    /** Revoga o token até a expiração natural dele. */
+    public void revoke(String authHeader) {
+        revocations.revoke(verify(authHeader));
+    }
+
+    private byte[] sign(String signingInput) {
+        return mac.get().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Mac newMac(String secret) {
+        try {
+            Mac m = Mac.getInstance("HmacSHA256");
+            m.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return m;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponível", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static ResponseStatusException unauthorized() {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+    }
+}
@@ -14,11 +14,12 @@ import java.util.concurrent.ThreadFactory;
 public class AsyncConfig {
 
 
+    // Uma thread por vaga das raias (PaymentLanes decide quem usa cada uma)
     @Bean
-    public ExecutorService paymentExecutor() {
+    public ExecutorService paymentExecutor(LaneProperties lanes) {
         ThreadFactory factory = Executors.defaultThreadFactory();
         return Executors.newFixedThreadPool(
-                Runtime.getRuntime().availableProcessors(),
+                lanes.totalConcurrency(),
                 r -> {
                     Thread t = factory.newThread(r);
                     t.setName("pay-worker-" + t.getId());
@@ -0,0 +1,25 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Expiração de pagamentos não pagos (fiadopay.expiry.*).
+ * ttl: prazo por método, contado de createdAt; métodos fora do mapa nunca expiram.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.expiry")
+public class ExpiryProperties {
+
+    private boolean enabled = true;
+    // Cada lote é um único UPDATE (transação curta); o limite de lotes evita monopolizar o banco
+    private int batchSize = 1_000;
+    private int maxBatchesPerRun = 100;
+    private Map<String, Duration> ttl = new LinkedHashMap<>(Map.of(
+            "PIX", Duration.ofMinutes(30),
+            "BOLETO", Duration.ofDays(3)));
+}
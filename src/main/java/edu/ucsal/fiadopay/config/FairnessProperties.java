@@ -0,0 +1,27 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fila justa entre merchants (fiadopay.fairness.*), usada nas raias de pagamento e no webhookExecutor.
+ * weights: peso por merchantId (padrão default-weight); um merchant de peso 3 é atendido 3x por volta.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.fairness")
+public class FairnessProperties {
+
+    private int defaultWeight = 1;
+    private Map<Long, Integer> weights = new LinkedHashMap<>();
+    // Teto de tarefas esperando por merchant em cada fila; acima disso o merchant é recusado, os outros não
+    private int maxQueuedPerMerchant = 5_000;
+    // Merchants listados em /fiadopay/admin/payments/backlog (os de maior fila)
+    private int backlogTop = 20;
+
+    public int weightOf(long merchantId) {
+        return Math.max(1, weights.getOrDefault(merchantId, defaultWeight));
+    }
+}
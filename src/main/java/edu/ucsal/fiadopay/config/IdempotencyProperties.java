@@ -0,0 +1,19 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Cache de respostas idempotentes (fiadopay.idempotency.*).
+ * Retries com a mesma Idempotency-Key dentro do ttl são respondidos da memória; depois disso
+ * (ou após um restart) a resposta é remontada a partir do pagamento gravado.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.idempotency")
+public class IdempotencyProperties {
+
+    private Duration ttl = Duration.ofHours(24);
+    private long maxEntries = 100_000;
+}
@@ -0,0 +1,49 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Raias de processamento por método de pagamento (fiadopay.lanes.*), na frente do paymentExecutor.
+ * methods: uma raia por valor de @PaymentMethod; métodos fora do mapa usam a raia defaults.
+ * O paymentExecutor tem a soma das concurrency de todas as raias.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.lanes")
+public class LaneProperties {
+
+    // Raia ociosa empresta suas vagas para raias com fila
+    private boolean borrowing = true;
+    // Últimas esperas guardadas por raia para os percentis do /admin/payments/lanes
+    private int waitSamples = 1_024;
+
+    private Lane defaults = new Lane(1, 10_000, Duration.ofSeconds(1));
+    private Map<String, Lane> methods = new LinkedHashMap<>(Map.of(
+            "PIX", new Lane(2, 10_000, Duration.ofMillis(50)),
+            "CARD", new Lane(2, 10_000, Duration.ofMillis(200)),
+            "DEBIT", new Lane(1, 10_000, Duration.ofMillis(200)),
+            "BOLETO", new Lane(1, 10_000, Duration.ofSeconds(2))));
+
+    public int totalConcurrency() {
+        return defaults.getConcurrency()
+                + methods.values().stream().mapToInt(Lane::getConcurrency).sum();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Lane {
+        // Vagas próprias no paymentExecutor
+        private int concurrency = 1;
+        // Pagamentos esperando; com a fila cheia o pagamento fica PENDING para a recuperação
+        private int maxQueued = 10_000;
+        // Espera aceitável na fila; entre raias com fila, sai primeiro a mais atrasada em relação ao alvo
+        private Duration latencyTarget = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,16 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Consulta em lote de pagamentos (fiadopay.lookup.*).
+ * Até max-ids ids por requisição; cada shard é lido em consultas IN de até chunk-size ids.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.lookup")
+public class LookupProperties {
+
+    private int maxIds = 500;
+    private int chunkSize = 100;
+}
@@ -17,7 +17,7 @@ import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
         name = "bearerAuth",
         type = SecuritySchemeType.HTTP,
         scheme = "bearer",
-        bearerFormat = "FAKE",
+        bearerFormat = "JWT",
         in = SecuritySchemeIn.HEADER
 )
 public class OpenApiConfig { }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package edu.ucsal.fiadopay.config;
+
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.format.PayloadMappers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Conversores CBOR e Smile para o Spring MVC: corpo de requisição pelo Content-Type, resposta pelo Accept.
+ * Usam os mappers do PayloadMappers (mesma configuração do JSON) no lugar dos padrões do Spring.
+ */
+@Configuration
+public class PayloadFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(PayloadMappers mappers) {
+        return new MappingJackson2CborHttpMessageConverter(mappers.of(PayloadFormat.CBOR));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(PayloadMappers mappers) {
+        return new MappingJackson2SmileHttpMessageConverter(mappers.of(PayloadFormat.SMILE));
+    }
+}
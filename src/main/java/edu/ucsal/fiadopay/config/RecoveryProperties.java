@@ -0,0 +1,25 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Recuperação de pagamentos presos em PENDING (fiadopay.recovery.*) e drenagem no shutdown.
+ * Só faz sentido com banco persistente (FIADOPAY_DB_URL=jdbc:h2:file:...); com H2 em memória
+ * um restart apaga tudo, mas a varredura ainda cobre tarefas perdidas (ex.: executor recusou).
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.recovery")
+public class RecoveryProperties {
+
+    private boolean enabled = true;
+    // Só pagamentos criados há mais que isso; precisa ser maior que o maior atraso simulado
+    private Duration minAge = Duration.ofMinutes(2);
+    private int batchSize = 200;
+    // Ritmo de reenfileiramento, para uma recuperação grande não afogar o paymentExecutor
+    private double maxPerSecond = 100;
+    // Tempo máximo esperando os executores terminarem o que já estava na fila
+    private Duration drainTimeout = Duration.ofSeconds(20);
+}
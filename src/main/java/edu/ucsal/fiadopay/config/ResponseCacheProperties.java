@@ -0,0 +1,20 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Cache das respostas de GET /payments/{id} (fiadopay.response-cache.*).
+ * max-bytes limita a soma dos corpos JSON em memória; cada transição invalida a entrada na hora
+ * e o ttl só cobre mudanças feitas fora desta JVM.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+    private long maxBytes = 16 * 1024 * 1024;
+    private Duration ttl = Duration.ofMinutes(10);
+}
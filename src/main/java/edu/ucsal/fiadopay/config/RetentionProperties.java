@@ -0,0 +1,27 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retenção das tabelas quentes (fiadopay.retention.*).
+ * Linhas mais velhas que a política vão para arquivos .jsonl.gz particionados por dia em archive-dir
+ * e são apagadas do banco. Uma política com valor 0 fica desligada.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.retention")
+public class RetentionProperties {
+
+    private boolean enabled = true;
+    private String archiveDir = "./data/archive";
+    private int batchSize = 1_000;
+    // Limite de lotes por execução, para o job não monopolizar o banco
+    private int maxBatchesPerRun = 50;
+
+    // Webhooks entregues, pela data da entrega (lastAttemptAt)
+    private Duration deliveredWebhooks = Duration.ofDays(7);
+    // Pagamentos em estado final (APPROVED, DECLINED, EXPIRED, REFUNDED), pela última atualização
+    private Duration settledPayments = Duration.ofDays(90);
+}
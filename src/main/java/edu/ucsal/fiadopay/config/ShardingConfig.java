@@ -0,0 +1,37 @@
+package edu.ucsal.fiadopay.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import edu.ucsal.fiadopay.shard.ShardRoutingDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Um pool Hikari por shard atrás de um {@link ShardRoutingDataSource}.
+ * Com fiadopay.sharding.shards=1 (padrão) é só o spring.datasource de sempre.
+ */
+@Configuration
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties datasource, ShardingProperties props) {
+        List<DataSource> shards = new ArrayList<>();
+        HikariDataSource global = datasource.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        global.setPoolName("fiadopay-shard-0");
+        shards.add(global);
+        for (int n = 1; n < props.getShards(); n++) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("fiadopay-shard-" + n);
+            shard.setJdbcUrl(props.getUrlTemplate().replace("{n}", String.valueOf(n)));
+            shard.setDriverClassName(datasource.determineDriverClassName());
+            shard.setUsername(datasource.determineUsername());
+            shard.setPassword(datasource.determinePassword());
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+}
@@ -0,0 +1,18 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Particionamento de pagamentos e webhooks por merchant (fiadopay.sharding.*).
+ * O shard 0 é o próprio spring.datasource e guarda também os dados globais (merchants);
+ * os shards 1..N-1 usam url-template com {n} trocado pelo número do shard.
+ * O número de shards faz parte do layout dos dados: mudar com dados gravados exige migração.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.sharding")
+public class ShardingProperties {
+
+    private int shards = 1;
+    private String urlTemplate = "jdbc:h2:mem:fiadopay_shard{n};MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+}
@@ -0,0 +1,53 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Perfis de simulação do processamento (fiadopay.simulation.*).
+ * Sem perfil ativo, vale o comportamento legado: processing-delay-ms fixo e failure-rate global.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.simulation")
+public class SimulationProperties {
+
+    private String activeProfile;
+
+    private Map<String, Profile> profiles = new HashMap<>();
+
+    @Data
+    public static class Profile {
+        // Semente determinística; null = aleatório a cada execução
+        private Long seed;
+        private Latency latency = new Latency();
+        private double failureRate = 0.15;
+        // Precedência: merchant > método > failureRate do perfil
+        private Map<String, Double> methodFailureRates = new HashMap<>();
+        private Map<Long, Double> merchantFailureRates = new HashMap<>();
+    }
+
+    @Data
+    public static class Latency {
+        private Distribution type = Distribution.FIXED;
+        private long fixedMs = 1500;        // FIXED
+        private long minMs = 0;             // UNIFORM / piso do EMPIRICAL
+        private long maxMs = 3000;          // UNIFORM
+        private long medianMs = 1000;       // LOGNORMAL
+        private double sigma = 0.5;         // LOGNORMAL
+        private long capMs = 0;             // teto da cauda; 0 = sem teto
+        private List<Percentile> percentiles = new ArrayList<>(); // EMPIRICAL
+    }
+
+    @Data
+    public static class Percentile {
+        private double p;   // 0..100
+        private long ms;
+    }
+
+    public enum Distribution { FIXED, UNIFORM, LOGNORMAL, EMPIRICAL }
+}
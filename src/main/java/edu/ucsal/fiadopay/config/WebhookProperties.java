@@ -0,0 +1,69 @@
+package edu.ucsal.fiadopay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Entrega de webhooks (fiadopay.webhook.*): timeouts HTTP, retry com back-off,
+ * bulkhead e circuit breaker por host de destino.
+ */
+@Data
+@ConfigurationProperties(prefix = "fiadopay.webhook")
+public class WebhookProperties {
+
+    private int maxAttempts = 5;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration requestTimeout = Duration.ofSeconds(5);
+    private long timerTickMs = 50;
+
+    private Backoff backoff = new Backoff();
+    private Bulkhead bulkhead = new Bulkhead();
+    private Breaker breaker = new Breaker();
+    private Ordering ordering = new Ordering();
+    private Replay replay = new Replay();
+
+    @Data
+    public static class Backoff {
+        private Duration base = Duration.ofSeconds(1);
+        private Duration max = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Bulkhead {
+        // Entregas simultâneas por host; o restante espera na fila do host
+        private int maxConcurrentPerHost = 4;
+        private int maxQueuedPerHost = 1_000;
+    }
+
+    @Data
+    public static class Ordering {
+        // Eventos da mesma chave saem em série e na ordem; chaves diferentes, em paralelo
+        private Key key = Key.PAYMENT;
+        private int stripes = 64;
+        // Eventos de um merchant esperando numa listra; além disso o evento espera fora dela, com back-off
+        private int maxQueuedPerMerchant = 1_000;
+
+        public enum Key { PAYMENT, MERCHANT }
+    }
+
+    @Data
+    public static class Replay {
+        // Ritmo padrão de um replay (cada pedido pode pedir menos) e entregas de replay em andamento
+        private double maxPerSecond = 50;
+        private int maxInFlight = 100;
+        private int pageSize = 500;
+        // Replays rodando ao mesmo tempo; os demais esperam na fila
+        private int maxConcurrent = 2;
+    }
+
+    @Data
+    public static class Breaker {
+        // Falhas consecutivas para abrir; depois de openDuration uma única sonda é liberada
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        // Quanto uma entrega pode esperar o circuito abrir (sem gastar tentativa) antes de contar como falha
+        private Duration maxDeferral = Duration.ofMinutes(5);
+    }
+}
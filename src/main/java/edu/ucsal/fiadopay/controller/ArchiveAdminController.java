@@ -0,0 +1,31 @@
+package edu.ucsal.fiadopay.controller;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.ucsal.fiadopay.archive.ArchiveStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import lombok.RequiredArgsConstructor;
+
+
+@RestController
+@RequestMapping("/fiadopay/admin/archive")
+@RequiredArgsConstructor
+public class ArchiveAdminController {
+    private final ArchiveStore archive;
+
+
+    @GetMapping("/payments/{id}")
+    public JsonNode payment(@PathVariable String id) {
+        return archive.find(ArchiveStore.Kind.PAYMENTS, id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+
+    @GetMapping("/deliveries/{id}")
+    public JsonNode delivery(@PathVariable Long id) {
+        return archive.find(ArchiveStore.Kind.DELIVERIES, String.valueOf(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
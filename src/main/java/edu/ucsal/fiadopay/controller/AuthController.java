@@ -1,15 +1,19 @@
 package edu.ucsal.fiadopay.controller;
 
 
+import edu.ucsal.fiadopay.auth.TokenService;
 import edu.ucsal.fiadopay.domain.Merchant;
 import edu.ucsal.fiadopay.dto.request.TokenRequest;
 import edu.ucsal.fiadopay.dto.response.TokenResponse;
 import edu.ucsal.fiadopay.repo.MerchantRepository;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import lombok.RequiredArgsConstructor;
 import jakarta.validation.Valid;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
 
 @RestController
@@ -17,6 +21,7 @@ import jakarta.validation.Valid;
 @RequiredArgsConstructor
 public class AuthController {
     private final MerchantRepository merchants;
+    private final TokenService tokens;
 
 
     @PostMapping("/token")
@@ -27,6 +32,14 @@ public class AuthController {
                 || merchant.getStatus()!= Merchant.Status.ACTIVE) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
         }
-        return new TokenResponse("FAKE-"+merchant.getId(), "Bearer", 3600);
+        return tokens.issue(merchant);
+    }
+
+
+    @PostMapping("/revoke")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> revoke(@Parameter(hidden = true) @RequestHeader("Authorization") String auth) {
+        tokens.revoke(auth);
+        return ResponseEntity.noContent().build();
     }
 }
@@ -1,8 +1,10 @@
 package edu.ucsal.fiadopay.controller;
 
 
+import edu.ucsal.fiadopay.auth.TokenRevocations;
 import edu.ucsal.fiadopay.domain.Merchant;
 import edu.ucsal.fiadopay.dto.response.MerchantCreateDTO;
+import edu.ucsal.fiadopay.format.PayloadFormat;
 
 import edu.ucsal.fiadopay.repo.MerchantRepository;
 import org.springframework.http.HttpStatus;
@@ -18,6 +20,7 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class MerchantAdminController {
     private final MerchantRepository merchants;
+    private final TokenRevocations revocations;
 
 
     @PostMapping
@@ -28,11 +31,46 @@ public class MerchantAdminController {
         var m = Merchant.builder()
                 .name(dto.name())
                 .webhookUrl(dto.webhookUrl())
+                .webhookFormat(dto.webhookFormat() == null ? PayloadFormat.JSON : dto.webhookFormat())
                 .clientId(UUID.randomUUID().toString())
                 .clientSecret(UUID.randomUUID().toString().replace("-", ""))
                 .status(Merchant.Status.ACTIVE)
                 .build();
         return merchants.save(m);
     }
-}
 
+
+    // Bloqueio vale na hora para todos os tokens já emitidos (lista de revogação em memória)
+    @PostMapping("/{id}/block")
+    public Merchant block(@PathVariable Long id) {
+        Merchant m = setStatus(id, Merchant.Status.BLOCKED);
+        revocations.block(id);
+        return m;
+    }
+
+
+    @PostMapping("/{id}/unblock")
+    public Merchant unblock(@PathVariable Long id) {
+        Merchant m = setStatus(id, Merchant.Status.ACTIVE);
+        revocations.unblock(id);
+        return m;
+    }
+
+
+    // Vale para os próximos eventos; entregas já na fila saem no formato em que foram criadas
+    @PutMapping("/{id}/webhook-format")
+    public Merchant setWebhookFormat(@PathVariable Long id, @RequestParam PayloadFormat format) {
+        var m = merchants.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        m.setWebhookFormat(format);
+        return merchants.save(m);
+    }
+
+
+    private Merchant setStatus(Long id, Merchant.Status status) {
+        var m = merchants.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        m.setStatus(status);
+        return merchants.save(m);
+    }
+}
@@ -0,0 +1,75 @@
+package edu.ucsal.fiadopay.controller;
+
+
+import edu.ucsal.fiadopay.config.FairnessProperties;
+import edu.ucsal.fiadopay.dto.response.LaneStatus;
+import edu.ucsal.fiadopay.dto.response.MerchantBacklog;
+import edu.ucsal.fiadopay.dto.response.PaymentStats;
+import edu.ucsal.fiadopay.repo.PaymentRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.scheduler.PaymentLanes;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import edu.ucsal.fiadopay.webhook.WebhookDispatcher;
+import org.springframework.web.bind.annotation.*;
+import lombok.RequiredArgsConstructor;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+@RestController
+@RequestMapping("/fiadopay/admin/payments")
+@RequiredArgsConstructor
+public class PaymentAdminController {
+    private final PaymentRepository payments;
+    private final WebhookDeliveryRepository deliveries;
+    private final ShardRouter shards;
+    private final PaymentLanes lanes;
+    private final WebhookDispatcher webhooks;
+    private final FairnessProperties fairness;
+
+
+    // Scatter-gather: a mesma contagem em todos os shards, em paralelo, somada aqui
+    @GetMapping("/stats")
+    public PaymentStats stats() {
+        List<PaymentStats.Shard> byShard = shards.scatter(shard -> {
+            Map<String, Long> counts = new TreeMap<>();
+            payments.countByStatus().forEach(c -> counts.put(c.getStatus().name(), c.getTotal()));
+            return new PaymentStats.Shard(shard, counts, deliveries.countByDeliveredFalse());
+        });
+
+        Map<String, Long> total = new TreeMap<>();
+        long undelivered = 0;
+        for (PaymentStats.Shard s : byShard) {
+            s.payments().forEach((status, n) -> total.merge(status, n, Long::sum));
+            undelivered += s.undeliveredWebhooks();
+        }
+        return new PaymentStats(shards.count(), total, undelivered, byShard);
+    }
+
+
+    // Raias por método: ocupação, empréstimos e espera na fila (p50/p99/máx das últimas wait-samples)
+    @GetMapping("/lanes")
+    public List<LaneStatus> lanes() {
+        return lanes.snapshot();
+    }
+
+
+    // Merchants com mais itens esperando nas filas justas (raias de pagamento + listras de webhook)
+    @GetMapping("/backlog")
+    public List<MerchantBacklog> backlog() {
+        Map<Long, Integer> payments = lanes.backlog();
+        Map<Long, Integer> hooks = webhooks.backlog();
+        Set<Long> ids = new HashSet<>(payments.keySet());
+        ids.addAll(hooks.keySet());
+        return ids.stream()
+                .map(id -> new MerchantBacklog(id, fairness.weightOf(id),
+                        payments.getOrDefault(id, 0), hooks.getOrDefault(id, 0)))
+                .sorted(Comparator.comparingInt((MerchantBacklog b) -> b.queuedPayments() + b.queuedWebhooks()).reversed())
+                .limit(fairness.getBacklogTop())
+                .toList();
+    }
+}
@@ -1,23 +1,43 @@
 package edu.ucsal.fiadopay.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import edu.ucsal.fiadopay.dto.request.PaymentLookupRequest;
 import edu.ucsal.fiadopay.dto.request.PaymentRequest;
+import edu.ucsal.fiadopay.dto.request.QuoteRequest;
 import edu.ucsal.fiadopay.dto.request.RefundRequest;
 import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.dto.response.QuoteResponse;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.format.PayloadMappers;
+import edu.ucsal.fiadopay.service.PaymentLookupService;
 import edu.ucsal.fiadopay.service.PaymentService;
+import edu.ucsal.fiadopay.service.QuoteService;
 import org.springframework.http.*;
+import org.springframework.web.ErrorResponseException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.RequiredArgsConstructor;
 import jakarta.validation.Valid;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 
 @RestController
 @RequestMapping("/fiadopay/gateway")
 @RequiredArgsConstructor
 public class PaymentController {
     private final PaymentService service;
+    private final QuoteService quotes;
+    private final PaymentLookupService lookup;
+    private final PayloadMappers mappers;
 
 
     @PostMapping("/payments")
@@ -32,9 +52,60 @@ public class PaymentController {
     }
 
 
+    // Polling com If-None-Match: 304 sem corpo enquanto o status não muda.
+    // Corpo já serializado no formato do Accept (JSON, CBOR ou Smile), cada um com seu ETag
     @GetMapping("/payments/{id}")
-    public PaymentResponse get(@PathVariable String id) {
-        return service.getPayment(id);
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = PaymentResponse.class)))
+    public ResponseEntity<byte[]> get(@PathVariable String id,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        var cached = service.getPaymentCached(id, negotiate(accept));
+        if (cached.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(cached.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(cached.etag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(cached.format().mediaType())
+                .body(cached.body());
+    }
+
+
+    // Vários pagamentos numa ida só: array (JSON, CBOR ou Smile) escrito à medida que cada bloco IN volta do banco
+    @PostMapping("/payments/lookup")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> lookup(@Parameter(hidden = true) @RequestHeader("Authorization") String auth,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                        @RequestBody @Valid PaymentLookupRequest req) {
+        var format = negotiate(accept);
+        long merchantId = lookup.merchantOf(auth);
+        var ids = lookup.normalize(req.ids());
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = mappers.of(format).createGenerator(out)) {
+                json.writeStartArray();
+                lookup.forEach(merchantId, ids, p -> {
+                    try {
+                        json.writeObject(p);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(format.mediaType()).body(body);
+    }
+
+
+    // Todas as opções de parcelamento de um valor ou carrinho, sem criar pagamento
+    @PostMapping("/quotes")
+    public QuoteResponse quote(@RequestBody @Valid QuoteRequest req) {
+        return quotes.quote(req);
     }
 
 
@@ -44,4 +115,16 @@ public class PaymentController {
                                                @RequestBody @Valid RefundRequest body) {
         return service.refund(auth, body.paymentId());
     }
+
+
+    // 406 também leva Vary: Accept, para um cache não servir essa recusa a quem pede outro formato
+    private static PayloadFormat negotiate(String accept) {
+        PayloadFormat format = PayloadFormat.negotiate(accept);
+        if (format == null) {
+            ErrorResponseException notAcceptable = new ErrorResponseException(HttpStatus.NOT_ACCEPTABLE);
+            notAcceptable.getHeaders().setVary(List.of(HttpHeaders.ACCEPT));
+            throw notAcceptable;
+        }
+        return format;
+    }
 }
@@ -0,0 +1,63 @@
+package edu.ucsal.fiadopay.controller;
+
+
+import edu.ucsal.fiadopay.dto.request.ReplayRequest;
+import edu.ucsal.fiadopay.dto.response.ReplayStatus;
+import edu.ucsal.fiadopay.dto.response.WebhookHostStatus;
+import edu.ucsal.fiadopay.webhook.WebhookHostRegistry;
+import edu.ucsal.fiadopay.webhook.WebhookReplayService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import lombok.RequiredArgsConstructor;
+import java.util.List;
+
+
+@RestController
+@RequestMapping("/fiadopay/admin/webhooks")
+@RequiredArgsConstructor
+public class WebhookAdminController {
+    private final WebhookHostRegistry hosts;
+    private final WebhookReplayService replays;
+
+
+    @GetMapping("/hosts")
+    public List<WebhookHostStatus> hosts() {
+        return hosts.snapshot();
+    }
+
+
+    @PostMapping("/hosts/{host}/reset")
+    public WebhookHostStatus reset(@PathVariable String host) {
+        return hosts.reset(host)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+
+    @PostMapping("/replays")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReplayStatus replay(@RequestBody @Valid ReplayRequest req) {
+        return replays.start(req);
+    }
+
+
+    @GetMapping("/replays")
+    public List<ReplayStatus> replays() {
+        return replays.list();
+    }
+
+
+    @GetMapping("/replays/{id}")
+    public ReplayStatus replay(@PathVariable String id) {
+        return replays.status(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+
+    @DeleteMapping("/replays/{id}")
+    public ReplayStatus cancel(@PathVariable String id) {
+        return replays.cancel(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
@@ -1,12 +1,15 @@
 package edu.ucsal.fiadopay.domain;
 
+import edu.ucsal.fiadopay.format.PayloadFormat;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
 @Data @NoArgsConstructor @AllArgsConstructor @Builder
 public class Merchant {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "merchant_seq")
+    @SequenceGenerator(name = "merchant_seq", sequenceName = "merchant_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable=false, unique=true)
@@ -20,6 +23,11 @@ public class Merchant {
 
     private String webhookUrl;
 
+    // Codificação do corpo dos webhooks (JSON, CBOR ou SMILE); null = JSON
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private PayloadFormat webhookFormat;
+
     @Enumerated(EnumType.STRING)
     private Status status = Status.ACTIVE;
 
@@ -8,7 +8,8 @@ import java.time.Instant;
 @Entity
 @Data @NoArgsConstructor @AllArgsConstructor @Builder
 @Table(
-    indexes = { @Index(columnList="merchantId"), @Index(columnList="status") },
+    indexes = { @Index(columnList="merchantId"), @Index(columnList="status"), @Index(columnList="status,updatedAt"), @Index(columnList="status,createdAt"),
+                @Index(columnList="status,method,createdAt") },
     uniqueConstraints = {
         @UniqueConstraint(name = "uk_payment_merchant_idempotency", columnNames = {"merchantId", "idempotencyKey"})
     }
@@ -49,6 +50,9 @@ public class Payment {
 
     @Column(length = 64)
     private String idempotencyKey;
+    // SHA-256 do corpo que criou o pagamento; reusar a chave com outro corpo é recusado
+    @Column(length = 43)
+    private String requestFingerprint;
     @Column(length = 255)
     private String metadataOrderId;
 
@@ -1,24 +1,51 @@
     package edu.ucsal.fiadopay.domain;
 
+    import edu.ucsal.fiadopay.format.PayloadFormat;
     import jakarta.persistence.*;
     import lombok.*;
     import java.time.Instant;
 
     @Entity
     @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    @Table(indexes = { @Index(columnList = "delivered,lastAttemptAt"), @Index(columnList = "paymentId"),
+                        @Index(columnList = "merchantId,sequence"), @Index(columnList = "merchantId,createdAt") })
     public class WebhookDelivery {
-        @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+        // Sequence com pooled optimizer (1 ida ao banco a cada 50 ids) mantém o batch de INSERT do Hibernate ativo
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "webhook_delivery_seq")
+        @SequenceGenerator(name = "webhook_delivery_seq", sequenceName = "webhook_delivery_seq", allocationSize = 50)
         private Long id;
 
         private String eventId;     // evt_xxx
         private String eventType;   // payment.updated
         private String paymentId;
+        private Long merchantId;
+        // Posição do evento na ordem da chave (pagamento ou merchant); vai no payload para detectar lacunas
+        private Long sequence;
         private String targetUrl;   // merchant webhook
-        private String signature;   // HMAC
+        // Codificação do corpo no envio, copiada do merchant como a URL; null = JSON
+        @Enumerated(EnumType.STRING)
+        @Column(length = 10)
+        private PayloadFormat format;
         private int attempts;
         private boolean delivered;
         private Instant lastAttemptAt;
+        private Instant createdAt;
 
-        @Lob
-        private String payload;
+        // Só em memória, para correlacionar os eventos JFR das tentativas com o pagamento
+        @Transient
+        private String paymentMethod;
+        // Limite de tentativas desta rodada (replay dá um novo orçamento); null = fiadopay.webhook.max-attempts
+        @Transient
+        private Integer maxAttempts;
+        // Desde quando a entrega espera o circuito do host (sem tentativa); null = não está esperando
+        @Transient
+        private Instant deferredSince;
+
+        // "data" do evento em Smile (comprimido se grande); JSON e assinatura são montados só no envio.
+        // Gravado na tabela WebhookPayload (mesmo id): entregas lidas do banco chegam sem os bytes, que
+        // o envio busca via WebhookPayloadRepository.findDataById
+        @Transient
+        @ToString.Exclude
+        private byte[] payloadData;
     }
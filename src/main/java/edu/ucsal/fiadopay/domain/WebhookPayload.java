@@ -0,0 +1,43 @@
+package edu.ucsal.fiadopay.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * "data" do evento de uma {@link WebhookDelivery}, numa tabela à parte com o mesmo id.
+ * Assim as leituras em lote de entregas (replay, retenção) não trazem os bytes; o envio
+ * busca o payload por id só quando precisa.
+ */
+@Entity
+@Data @NoArgsConstructor
+public class WebhookPayload implements Persistable<Long> {
+    @Id
+    private Long id;    // = WebhookDelivery.id
+
+    // Smile (comprimido se grande), ver WebhookPayloadCodec
+    @Column(length = 2048)
+    @ToString.Exclude
+    private byte[] data;
+
+    // O id vem da entrega: sem isto o save() faria um SELECT (merge) antes de cada INSERT
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude
+    private boolean stored;
+
+    public WebhookPayload(Long id, byte[] data) {
+        this.id = id;
+        this.data = data;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markStored() {
+        stored = true;
+    }
+}
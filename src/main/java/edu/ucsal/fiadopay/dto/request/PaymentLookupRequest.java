@@ -0,0 +1,9 @@
+package edu.ucsal.fiadopay.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record PaymentLookupRequest(
+    @NotEmpty List<String> ids // limite: fiadopay.lookup.max-ids
+) {}
@@ -0,0 +1,21 @@
+package edu.ucsal.fiadopay.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import java.math.BigDecimal;
+import java.util.List;
+
+// Informe amount (valor único) ou items (carrinho: cada item é cotado e o total também)
+public record QuoteRequest(
+    @DecimalMin(value = "0.01") @Digits(integer = 17, fraction = 2) BigDecimal amount,
+    @Size(max = 500) List<@Valid Item> items,
+    String currency,
+    // Escala limitada: cada taxa distinta monta (e guarda) uma tabela de potências exatas
+    @DecimalMin(value = "0.0") @DecimalMax(value = "20.0") @Digits(integer = 2, fraction = 4) BigDecimal monthlyInterest
+) {
+    public record Item(
+        @Size(max = 255) String id,
+        @NotNull @DecimalMin(value = "0.01") @Digits(integer = 17, fraction = 2) BigDecimal amount,
+        @Min(1) @Max(1000) Integer quantity
+    ) {}
+}
@@ -0,0 +1,15 @@
+package edu.ucsal.fiadopay.dto.request;
+
+import jakarta.validation.constraints.*;
+import java.time.Instant;
+
+public record ReplayRequest(
+    @NotNull Long merchantId,
+    @NotNull Instant from,
+    @NotNull Instant to,
+    DeliveryState state,          // padrão: UNDELIVERED
+    @Positive Double maxPerSecond, // padrão (e teto): fiadopay.webhook.replay.max-per-second
+    String eventType               // padrão: payment.updated
+) {
+    public enum DeliveryState { UNDELIVERED, DELIVERED, ALL }
+}
@@ -0,0 +1,3 @@
+package edu.ucsal.fiadopay.dto.response;
+import java.math.BigDecimal;
+public record InstallmentOption(int installments, BigDecimal installmentAmount, BigDecimal total, BigDecimal interest) {}
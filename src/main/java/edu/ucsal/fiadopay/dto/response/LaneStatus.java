@@ -0,0 +1,5 @@
+package edu.ucsal.fiadopay.dto.response;
+
+public record LaneStatus(String lane, int concurrency, int maxQueued, long latencyTargetMs,
+                         int running, int queued, long completed, long borrowed, long rejected,
+                         long overTarget, double waitP50Ms, double waitP99Ms, double waitMaxMs) {}
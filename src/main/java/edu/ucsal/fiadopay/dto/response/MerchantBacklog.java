@@ -0,0 +1,3 @@
+package edu.ucsal.fiadopay.dto.response;
+
+public record MerchantBacklog(long merchantId, int weight, int queuedPayments, int queuedWebhooks) {}
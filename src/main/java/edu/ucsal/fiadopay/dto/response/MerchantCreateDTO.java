@@ -1,9 +1,11 @@
 package edu.ucsal.fiadopay.dto.response;
 
+import edu.ucsal.fiadopay.format.PayloadFormat;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 public record MerchantCreateDTO(
     @NotBlank @Size(max = 120) String name,
-    @NotBlank String webhookUrl
+    @NotBlank String webhookUrl,
+    PayloadFormat webhookFormat // opcional: JSON (padrão), CBOR ou SMILE
 ) {}
@@ -0,0 +1,9 @@
+package edu.ucsal.fiadopay.dto.response;
+
+import java.util.List;
+import java.util.Map;
+
+public record PaymentStats(int shards, Map<String, Long> payments, long undeliveredWebhooks, List<Shard> byShard) {
+
+    public record Shard(int shard, Map<String, Long> payments, long undeliveredWebhooks) {}
+}
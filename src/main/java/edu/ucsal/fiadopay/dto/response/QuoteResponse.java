@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.dto.response;
+import java.math.BigDecimal;
+import java.util.List;
+public record QuoteResponse(BigDecimal amount, String currency, Double interestRate, List<InstallmentOption> plans, List<ItemQuote> items) {
+    public record ItemQuote(String id, int quantity, BigDecimal amount, List<InstallmentOption> plans) {}
+}
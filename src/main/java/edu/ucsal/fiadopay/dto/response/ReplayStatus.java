@@ -0,0 +1,8 @@
+package edu.ucsal.fiadopay.dto.response;
+
+import java.time.Instant;
+
+public record ReplayStatus(String id, Long merchantId, Instant from, Instant to, String deliveryState,
+                           double maxPerSecond, String status, long matched, long enqueued,
+                           long delivered, long failed, long skipped, Instant startedAt, Instant finishedAt,
+                           String error) {}
@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.dto.response;
+
+import java.time.Instant;
+
+public record WebhookHostStatus(String host, String breakerState, int consecutiveFailures,
+                                Instant openedAt, int inFlight, int queued) {}
@@ -0,0 +1,85 @@
+package edu.ucsal.fiadopay.expiry;
+
+import edu.ucsal.fiadopay.config.ExpiryProperties;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.service.PaymentResponseCache;
+import edu.ucsal.fiadopay.shard.ShardContext;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import edu.ucsal.fiadopay.webhook.WebhookDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expira pagamentos PENDING que passaram do TTL do método.
+ * Cada lote é um só UPDATE pelo índice (status, method, createdAt), limitado a batch-size linhas e em
+ * autocommit: nenhum lock longo e nenhuma entidade carregada. O FINAL TABLE do H2 devolve as linhas
+ * que o próprio UPDATE mudou, então só quem realmente saiu de PENDING recebe webhook (em lote).
+ * O UPDATE roda em cada shard; a publicação fica fora do escopo do shard (merchants estão no shard 0).
+ */
+@Service
+@RequiredArgsConstructor
+public class PaymentExpirySweeper {
+
+    private static final String EXPIRE_SQL = """
+            SELECT id, merchant_id, method, updated_at FROM FINAL TABLE (
+              UPDATE payment SET status = 'EXPIRED', updated_at = ?
+              WHERE status = 'PENDING' AND id IN (
+                SELECT id FROM payment
+                WHERE status = 'PENDING' AND method = ? AND created_at < ?
+                ORDER BY created_at
+                LIMIT ?))""";
+
+    private final JdbcTemplate jdbc;
+    private final WebhookDispatcher webhooks;
+    private final ExpiryProperties props;
+    private final ShardRouter shards;
+    private final PaymentResponseCache responseCache;
+
+    @Scheduled(initialDelayString = "${fiadopay.expiry.initial-delay:PT30S}",
+               fixedDelayString = "${fiadopay.expiry.interval:PT30S}")
+    public void run() {
+        if (props.isEnabled()) sweep();
+    }
+
+    /** Retorna quantos pagamentos expiraram nesta passada. */
+    public int sweep() {
+        int total = 0;
+        for (Map.Entry<String, Duration> ttl : props.getTtl().entrySet()) {
+            if (ttl.getValue() == null || ttl.getValue().isZero()) continue;
+            for (int shard = 0; shard < shards.count(); shard++) {
+                total += sweep(shard, ttl.getKey().toUpperCase(), Instant.now().minus(ttl.getValue()));
+            }
+        }
+        return total;
+    }
+
+    private int sweep(int shard, String method, Instant cutoff) {
+        int total = 0;
+        for (int i = 0; i < props.getMaxBatchesPerRun(); i++) {
+            List<Payment> expired = ShardContext.call(shard, () -> jdbc.query(EXPIRE_SQL,
+                    (rs, n) -> Payment.builder()
+                            .id(rs.getString("id"))
+                            .merchantId(rs.getLong("merchant_id"))
+                            .method(rs.getString("method"))
+                            .status(Payment.Status.EXPIRED)
+                            .updatedAt(rs.getTimestamp("updated_at").toInstant())
+                            .build(),
+                    Timestamp.from(Instant.now()), method, Timestamp.from(cutoff), props.getBatchSize()));
+            if (expired.isEmpty()) break;
+
+            expired.forEach(p -> responseCache.invalidate(p.getId()));
+            webhooks.publishAll(expired);
+            total += expired.size();
+            if (expired.size() < props.getBatchSize()) break;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,101 @@
+package edu.ucsal.fiadopay.fairness;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Fila por merchant com deficit round-robin (DRR): os merchants com fila se revezam e cada um
+ * tira até "peso" itens por vez. Um merchant com 50 mil itens não atrasa o próximo item de quem
+ * tem um só: esse item sai na próxima volta. Dentro de um merchant a ordem é FIFO.
+ * A fila de cada merchant é limitada e some quando esvazia. Não é thread-safe: quem usa segura o lock.
+ */
+public final class FairQueue<T> {
+
+    private final Map<Long, MerchantQueue<T>> byMerchant = new HashMap<>();
+    private final ArrayDeque<MerchantQueue<T>> active = new ArrayDeque<>();
+    private final int maxQueuedPerMerchant;
+    private final LongToIntFunction weightOf;
+    private int size;
+
+    public FairQueue(int maxQueuedPerMerchant, LongToIntFunction weightOf) {
+        this.maxQueuedPerMerchant = maxQueuedPerMerchant;
+        this.weightOf = weightOf;
+    }
+
+    /** Retorna false se a fila do merchant estiver cheia. */
+    public boolean offer(long merchantId, T item) {
+        MerchantQueue<T> q = byMerchant.get(merchantId);
+        if (q == null) {
+            q = new MerchantQueue<>(merchantId, Math.max(1, weightOf.applyAsInt(merchantId)));
+            byMerchant.put(merchantId, q);
+            active.addLast(q);
+        } else if (q.items.size() >= maxQueuedPerMerchant) {
+            return false;
+        }
+        q.items.addLast(item);
+        size++;
+        return true;
+    }
+
+    /** O próximo item que {@link #poll()} devolveria. */
+    public T peek() {
+        MerchantQueue<T> q = active.peekFirst();
+        return q == null ? null : q.items.peekFirst();
+    }
+
+    public T poll() {
+        MerchantQueue<T> q = active.peekFirst();
+        if (q == null) return null;
+        if (q.deficit == 0) q.deficit = q.weight;  // começa a vez do merchant
+        T item = q.items.pollFirst();
+        q.deficit--;
+        size--;
+        if (q.items.isEmpty()) {
+            active.pollFirst();
+            byMerchant.remove(q.merchantId);
+        } else if (q.deficit == 0) {
+            active.addLast(active.pollFirst());  // gastou a vez: vai para o fim
+        }
+        return item;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size(long merchantId) {
+        MerchantQueue<T> q = byMerchant.get(merchantId);
+        return q == null ? 0 : q.items.size();
+    }
+
+    /** Itens esperando por merchant (só merchants com fila). */
+    public Map<Long, Integer> backlog() {
+        Map<Long, Integer> out = new HashMap<>(byMerchant.size() * 2);
+        byMerchant.forEach((id, q) -> out.put(id, q.items.size()));
+        return out;
+    }
+
+    public void clear() {
+        byMerchant.clear();
+        active.clear();
+        size = 0;
+    }
+
+    private static final class MerchantQueue<T> {
+        final long merchantId;
+        final int weight;
+        final ArrayDeque<T> items = new ArrayDeque<>();
+        int deficit;
+
+        MerchantQueue(long merchantId, int weight) {
+            this.merchantId = merchantId;
+            this.weight = weight;
+        }
+    }
+}
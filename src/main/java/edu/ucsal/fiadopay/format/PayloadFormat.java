@@ -0,0 +1,67 @@
+package edu.ucsal.fiadopay.format;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Codificações aceitas nos endpoints do gateway e nos webhooks. O modelo é o mesmo (Jackson);
+ * muda só o formato dos bytes. CBOR e Smile evitam o parse de texto e encolhem números e chaves repetidas.
+ */
+public enum PayloadFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(new MediaType("application", "x-jackson-smile"));
+
+    private final MediaType mediaType;
+
+    PayloadFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Formato pelo header Accept; sem Accept (ou com Accept inválido) vale JSON, sem formato aceitável, null.
+     * A qualidade de cada formato é a do intervalo mais específico que o cobre, então "application/json;q=0"
+     * recusa JSON mesmo com um curinga junto. Ganha a maior qualidade; no empate, o intervalo mais específico
+     * e depois a ordem do enum.
+     */
+    public static PayloadFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) return JSON;
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        PayloadFormat best = null;
+        double bestQuality = 0;
+        int bestSpecificity = -1;
+        for (PayloadFormat format : values()) {
+            MediaType range = null;
+            for (MediaType candidate : accepted) {
+                if (candidate.includes(format.mediaType)
+                        && (range == null || specificity(candidate) > specificity(range))) {
+                    range = candidate;
+                }
+            }
+            if (range == null) continue;
+            double quality = range.getQualityValue();
+            if (quality > bestQuality || (quality > 0 && quality == bestQuality && specificity(range) > bestSpecificity)) {
+                best = format;
+                bestQuality = quality;
+                bestSpecificity = specificity(range);
+            }
+        }
+        return best;
+    }
+
+    // */* < application/* < application/cbor (a qualidade não entra, ao contrário de MediaType.isMoreSpecific)
+    private static int specificity(MediaType range) {
+        return range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+    }
+}
@@ -0,0 +1,29 @@
+package edu.ucsal.fiadopay.format;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Um ObjectMapper por formato, todos copiados do ObjectMapper do Spring (mesmos módulos e opções),
+ * então um PaymentResponse sai com os mesmos campos em JSON, CBOR ou Smile.
+ */
+@Component
+public class PayloadMappers {
+
+    private final Map<PayloadFormat, ObjectMapper> mappers = new EnumMap<>(PayloadFormat.class);
+
+    public PayloadMappers(ObjectMapper json) {
+        mappers.put(PayloadFormat.JSON, json);
+        mappers.put(PayloadFormat.CBOR, json.copyWith(new CBORFactory()));
+        mappers.put(PayloadFormat.SMILE, json.copyWith(new SmileFactory()));
+    }
+
+    public ObjectMapper of(PayloadFormat format) {
+        return mappers.get(format == null ? PayloadFormat.JSON : format);
+    }
+}
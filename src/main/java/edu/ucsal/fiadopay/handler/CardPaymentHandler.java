@@ -4,26 +4,30 @@ import edu.ucsal.fiadopay.annotations.PaymentMethod;
 import edu.ucsal.fiadopay.domain.Payment;
 import edu.ucsal.fiadopay.dto.request.PaymentRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.stereotype.Component;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @PaymentMethod("CARD")
 @RequiredArgsConstructor
 
 public class CardPaymentHandler implements PaymentHandler {
+
+    // Fatores (1 + juros)^n pré-calculados, os mesmos usados na cotação
+    private final InstallmentTable installmentTable;
+
     @Override
     public Payment process(Payment payment, PaymentRequest req) {
+        // O @Max(12) do DTO não acompanha fiadopay.card.max-installments; acima da tabela é erro do cliente
+        if (req.installments() != null && req.installments() > installmentTable.maxInstallments()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "installments deve estar entre 1 e " + installmentTable.maxInstallments());
+        }
         if (req.installments() != null && req.installments() > 1) {
-            var base = BigDecimal.valueOf(1.01);
-            var factor = base.pow(req.installments());
-            var total = req.amount().multiply(factor)
-                    .setScale(2, RoundingMode.HALF_UP);
-            payment.setMonthlyInterest(1.0);
-            payment.setTotalWithInterest(total);
+            var rate = installmentTable.defaultMonthlyInterest();
+            payment.setMonthlyInterest(rate.doubleValue());
+            payment.setTotalWithInterest(installmentTable.total(req.amount(), rate, req.installments()));
         } else {
             payment.setTotalWithInterest(req.amount());
         }
@@ -0,0 +1,82 @@
+package edu.ucsal.fiadopay.handler;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import edu.ucsal.fiadopay.dto.response.InstallmentOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fatores de juros compostos (1 + taxa)^n pré-calculados para n = 1..maxInstallments.
+ * Uma tabela por taxa mensal, montada uma vez e guardada em cache; o CardPaymentHandler e a
+ * cotação (/quotes) usam as mesmas tabelas, então o total cotado é sempre o total cobrado.
+ */
+@Component
+public class InstallmentTable {
+
+    private final BigDecimal defaultMonthlyInterest;
+    private final int maxInstallments;
+
+    // Chave normalizada (stripTrailingZeros) para 1.0 e 1.00 caírem na mesma tabela
+    private final LoadingCache<BigDecimal, BigDecimal[]> tables;
+
+    public InstallmentTable(@Value("${fiadopay.card.monthly-interest:1.0}") BigDecimal defaultMonthlyInterest,
+                            @Value("${fiadopay.card.max-installments:12}") int maxInstallments) {
+        this.defaultMonthlyInterest = defaultMonthlyInterest;
+        this.maxInstallments = maxInstallments;
+        this.tables = CacheBuilder.newBuilder()
+                .maximumSize(64)
+                .build(CacheLoader.from(this::buildTable));
+    }
+
+    public BigDecimal defaultMonthlyInterest() {
+        return defaultMonthlyInterest;
+    }
+
+    public int maxInstallments() {
+        return maxInstallments;
+    }
+
+    /** Fator (1 + taxa/100)^installments. À vista não tem juros: plans() e o CardPaymentHandler não usam o fator de 1. */
+    public BigDecimal factor(BigDecimal monthlyInterest, int installments) {
+        if (installments < 1 || installments > maxInstallments) {
+            throw new IllegalArgumentException("Parcelas fora de 1.." + maxInstallments + ": " + installments);
+        }
+        return tables.getUnchecked(monthlyInterest.stripTrailingZeros())[installments];
+    }
+
+    public BigDecimal total(BigDecimal amount, BigDecimal monthlyInterest, int installments) {
+        return amount.multiply(factor(monthlyInterest, installments)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /** Todas as opções de parcelamento de um valor: à vista (sem juros) e de 2 a maxInstallments. */
+    public List<InstallmentOption> plans(BigDecimal amount, BigDecimal monthlyInterest) {
+        List<InstallmentOption> plans = new ArrayList<>(maxInstallments);
+        BigDecimal cash = amount.setScale(2, RoundingMode.HALF_UP);
+        plans.add(new InstallmentOption(1, cash, cash, BigDecimal.ZERO.setScale(2)));
+        for (int n = 2; n <= maxInstallments; n++) {
+            BigDecimal total = total(amount, monthlyInterest, n);
+            plans.add(new InstallmentOption(n,
+                    total.divide(BigDecimal.valueOf(n), 2, RoundingMode.HALF_UP),
+                    total,
+                    total.subtract(cash)));
+        }
+        return plans;
+    }
+
+    private BigDecimal[] buildTable(BigDecimal monthlyInterest) {
+        BigDecimal base = BigDecimal.ONE.add(monthlyInterest.movePointLeft(2));
+        BigDecimal[] factors = new BigDecimal[maxInstallments + 1];
+        factors[0] = BigDecimal.ONE;
+        for (int n = 1; n <= maxInstallments; n++) {
+            factors[n] = factors[n - 1].multiply(base); // exato, igual a base.pow(n)
+        }
+        return factors;
+    }
+}
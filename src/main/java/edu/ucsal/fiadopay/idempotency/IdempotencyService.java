@@ -0,0 +1,126 @@
+package edu.ucsal.fiadopay.idempotency;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.ucsal.fiadopay.config.IdempotencyProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Idempotência por (merchant, Idempotency-Key).
+ * - Single-flight: requisições simultâneas com a mesma chave esperam a primeira em vez de
+ *   correr para o INSERT (que terminaria em violação da uk_payment_merchant_idempotency).
+ * - Respostas concluídas ficam num cache limitado com TTL; retries não vão ao banco.
+ * - Cada chave guarda o fingerprint do corpo original; reusar a chave com outro corpo dá 422.
+ * No cache miss a resposta gravada (se houver) é buscada uma vez; a violação da constraint
+ * (outra instância ganhou a corrida) também cai nessa busca.
+ * A resposta guardada é a da primeira chamada; quem precisa do estado atual (ex.: o PaymentService,
+ * que devolve o status corrente do pagamento) relê a partir dela.
+ */
+@Service
+public class IdempotencyService {
+
+    /** Resposta já gravada e o fingerprint do corpo que a gerou (null em linhas antigas: aceita qualquer corpo). */
+    public record Stored<T>(String fingerprint, T response) {}
+
+    public record Result<T>(T response, boolean replayed) {}
+
+    private record Key(long merchantId, String key) {}
+
+    private final Cache<Key, Stored<?>> completed;
+    private final ConcurrentHashMap<Key, CompletableFuture<Stored<?>>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyProperties props) {
+        this.completed = CacheBuilder.newBuilder()
+                .maximumSize(props.getMaxEntries())
+                .expireAfterWrite(props.getTtl())
+                .build();
+    }
+
+    /**
+     * Executa action uma única vez por chave; as demais chamadas recebem a mesma resposta (replayed=true).
+     * lookup busca a resposta já persistida quando ela não está em memória.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> execute(long merchantId, String idempotencyKey, String fingerprint,
+                                 Supplier<Optional<Stored<T>>> lookup, Supplier<T> action) {
+        Key key = new Key(merchantId, idempotencyKey);
+        Stored<?> cached = completed.getIfPresent(key);
+        if (cached != null) {
+            return replay((Stored<T>) cached, fingerprint);
+        }
+
+        CompletableFuture<Stored<?>> mine = new CompletableFuture<>();
+        CompletableFuture<Stored<?>> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            return replay((Stored<T>) await(leader), fingerprint);
+        }
+
+        try {
+            // Pode ter concluído entre o getIfPresent e o putIfAbsent
+            Stored<T> stored = (Stored<T>) completed.getIfPresent(key);
+            boolean replayed = true;
+            if (stored == null) stored = lookup.get().orElse(null);
+            if (stored == null) {
+                try {
+                    stored = new Stored<>(fingerprint, action.get());
+                    replayed = false;
+                } catch (DataIntegrityViolationException e) {
+                    stored = lookup.get().orElseThrow(() -> e);
+                }
+            }
+            completed.put(key, stored);
+            mine.complete(stored);
+            return replayed ? replay(stored, fingerprint) : new Result<>(stored.response(), false);
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** SHA-256 das partes normalizadas do corpo, em Base64 URL (43 caracteres). */
+    public static String fingerprint(Object... parts) {
+        StringBuilder canonical = new StringBuilder();
+        for (Object part : parts) canonical.append(Objects.toString(part, "")).append('\n');
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> Result<T> replay(Stored<T> stored, String fingerprint) {
+        if (stored.fingerprint() != null && !stored.fingerprint().equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key já usada com outro corpo de requisição");
+        }
+        return new Result<>(stored.response(), true);
+    }
+
+    // O erro da primeira chamada vale para quem esperava por ela (ex.: 401, 400 do handler)
+    private static Stored<?> await(CompletableFuture<Stored<?>> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
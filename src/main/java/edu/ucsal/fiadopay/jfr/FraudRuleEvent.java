@@ -0,0 +1,24 @@
+package edu.ucsal.fiadopay.jfr;
+
+import edu.ucsal.fiadopay.domain.Payment;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fiadopay.FraudRule")
+@Label("Regra antifraude")
+@Description("Avaliação de uma regra @AntiFraud")
+public class FraudRuleEvent extends PaymentEvent {
+
+    @Label("Regra")
+    String rule;
+
+    @Label("Fraude")
+    boolean fraud;
+
+    public void evaluated(Payment p, Object rule, boolean fraud) {
+        payment(p);
+        this.rule = rule.getClass().getSimpleName();
+        this.fraud = fraud;
+    }
+}
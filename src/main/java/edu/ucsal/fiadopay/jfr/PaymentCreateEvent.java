@@ -0,0 +1,31 @@
+package edu.ucsal.fiadopay.jfr;
+
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fiadopay.PaymentCreate")
+@Label("Criação de pagamento")
+@Description("POST /payments: autenticação, idempotência, handler do método e INSERT")
+public class PaymentCreateEvent extends PaymentEvent {
+
+    @Label("Handler")
+    String handler;
+
+    @Label("Reaproveitado por idempotência")
+    boolean idempotentReplay;
+
+    public void created(Payment p, Object handler) {
+        payment(p);
+        this.handler = handler == null ? null : handler.getClass().getSimpleName();
+    }
+
+    public void replayed(PaymentResponse r, long merchantId) {
+        this.paymentId = r.id();
+        this.merchantId = merchantId;
+        this.method = r.method();
+        this.idempotentReplay = true;
+    }
+}
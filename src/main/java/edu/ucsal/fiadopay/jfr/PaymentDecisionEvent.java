@@ -0,0 +1,24 @@
+package edu.ucsal.fiadopay.jfr;
+
+import edu.ucsal.fiadopay.domain.Payment;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fiadopay.PaymentDecision")
+@Label("Decisão do pagamento")
+@Description("processAsync: simulação, regras antifraude, UPDATE do status e publicação do webhook")
+public class PaymentDecisionEvent extends PaymentEvent {
+
+    @Label("Status")
+    String status;
+
+    @Label("Fraude")
+    boolean fraud;
+
+    public void decided(Payment p, boolean fraud) {
+        payment(p);
+        this.status = p.getStatus().name();
+        this.fraud = fraud;
+    }
+}
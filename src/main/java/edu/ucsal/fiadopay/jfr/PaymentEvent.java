@@ -0,0 +1,37 @@
+package edu.ucsal.fiadopay.jfr;
+
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base dos eventos JFR do ciclo de vida do pagamento.
+ * Todos carregam paymentId, merchantId e método para correlacionar as etapas de um mesmo pagamento
+ * numa gravação (ver src/main/resources/jfr/fiadopay.jfc).
+ */
+@Category({"FiadoPay", "Pagamento"})
+abstract class PaymentEvent extends Event {
+
+    @Label("Pagamento")
+    String paymentId;
+
+    @Label("Merchant")
+    long merchantId;
+
+    @Label("Método")
+    String method;
+
+    void payment(Payment p) {
+        paymentId = p.getId();
+        merchantId = p.getMerchantId() == null ? 0 : p.getMerchantId();
+        method = p.getMethod();
+    }
+
+    void delivery(WebhookDelivery d) {
+        paymentId = d.getPaymentId();
+        merchantId = d.getMerchantId() == null ? 0 : d.getMerchantId();
+        method = d.getPaymentMethod();
+    }
+}
@@ -0,0 +1,46 @@
+package edu.ucsal.fiadopay.jfr;
+
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.scheduler.HashedTimingWheel;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Espera na raia do método (PaymentLanes): começa quando o timer da conclusão vence e termina
+ * quando uma thread do paymentExecutor pega a tarefa. O atraso simulado em si fica no campo scheduledDelay.
+ */
+@Name("fiadopay.PaymentQueueWait")
+@Label("Espera na fila de processamento")
+@Description("Do vencimento do timer até o início de processAsync no paymentExecutor")
+public class PaymentQueueWaitEvent extends PaymentEvent {
+
+    @Label("Atraso simulado")
+    @Timespan(Timespan.MILLISECONDS)
+    long scheduledDelay;
+
+    /** Envolve a conclusão agendada; o evento só é montado se estiver habilitado na gravação. */
+    public static Runnable track(Payment p, long delayMs, Runnable completion) {
+        PaymentQueueWaitEvent event = new PaymentQueueWaitEvent();
+        if (!event.isEnabled()) return completion;
+        event.payment(p);
+        event.scheduledDelay = delayMs;
+        return new Tracked(event, completion);
+    }
+
+    private record Tracked(PaymentQueueWaitEvent event, Runnable completion)
+            implements Runnable, HashedTimingWheel.DispatchAware {
+
+        @Override
+        public void onDispatch() {
+            event.begin();
+        }
+
+        @Override
+        public void run() {
+            event.commit();
+            completion.run();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package edu.ucsal.fiadopay.jfr;
+
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fiadopay.WebhookAttempt")
+@Label("Tentativa de webhook")
+@Description("Uma chamada HTTP de entrega (tryDeliver), já dentro do bulkhead do host")
+public class WebhookAttemptEvent extends PaymentEvent {
+
+    @Label("Evento")
+    String eventId;
+
+    @Label("Host")
+    String host;
+
+    @Label("Tentativa")
+    int attempt;
+
+    @Label("Status HTTP")
+    int statusCode;
+
+    @Label("Entregue")
+    boolean delivered;
+
+    @Label("Erro")
+    String error;
+
+    public void attempt(WebhookDelivery d, String host) {
+        delivery(d);
+        this.eventId = d.getEventId();
+        this.host = host;
+        this.attempt = d.getAttempts() + 1;
+    }
+
+    public void result(int statusCode, boolean delivered, Throwable error) {
+        this.statusCode = statusCode;
+        this.delivered = delivered;
+        this.error = error == null ? null : error.getClass().getSimpleName();
+    }
+}
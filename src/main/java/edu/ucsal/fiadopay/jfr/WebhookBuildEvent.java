@@ -0,0 +1,26 @@
+package edu.ucsal.fiadopay.jfr;
+
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("fiadopay.WebhookBuild")
+@Label("Montagem do webhook")
+@Description("Payload compacto -> JSON do evento + assinatura HMAC, a cada tentativa")
+public class WebhookBuildEvent extends PaymentEvent {
+
+    @Label("Evento")
+    String eventId;
+
+    @Label("Tamanho do corpo")
+    @DataAmount
+    long bodySize;
+
+    public void built(WebhookDelivery d, int bodySize) {
+        delivery(d);
+        this.eventId = d.getEventId();
+        this.bodySize = bodySize;
+    }
+}
@@ -0,0 +1,104 @@
+package edu.ucsal.fiadopay.recovery;
+
+import edu.ucsal.fiadopay.config.RecoveryProperties;
+import edu.ucsal.fiadopay.scheduler.PaymentLanes;
+import edu.ucsal.fiadopay.scheduler.PaymentCompletionScheduler;
+import edu.ucsal.fiadopay.webhook.DeliveryAttemptRecorder;
+import edu.ucsal.fiadopay.webhook.WebhookDispatcher;
+import edu.ucsal.fiadopay.webhook.WebhookReplayService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drenagem no shutdown, depois do graceful shutdown do servidor web (não entram pagamentos novos).
+ * Ordem: para a recuperação, os timers e os replays; espera as raias e o paymentExecutor terminarem as decisões já na fila
+ * (elas publicam webhooks); espera o webhookExecutor; grava as tentativas pendentes.
+ * Pagamentos cujo timer ainda não venceu continuam PENDING no banco e voltam pela recuperação; entregas que
+ * esperavam retry (o timer para aqui) ou ainda estavam na listra continuam não entregues e voltam pela
+ * {@link WebhookRecovery} na próxima partida.
+ */
+@Component
+public class GracefulDrain implements SmartLifecycle {
+
+    private final PaymentRecovery recovery;
+    private final WebhookRecovery webhookRecovery;
+    private final PaymentCompletionScheduler completionScheduler;
+    private final PaymentLanes lanes;
+    private final ExecutorService paymentExecutor;
+    private final WebhookDispatcher webhooks;
+    private final WebhookReplayService replays;
+    private final ExecutorService webhookExecutor;
+    private final DeliveryAttemptRecorder recorder;
+    private final RecoveryProperties props;
+    private volatile boolean running;
+
+    public GracefulDrain(PaymentRecovery recovery,
+                         WebhookRecovery webhookRecovery,
+                         PaymentCompletionScheduler completionScheduler,
+                         PaymentLanes lanes,
+                         @Qualifier("paymentExecutor") ExecutorService paymentExecutor,
+                         WebhookDispatcher webhooks,
+                         WebhookReplayService replays,
+                         @Qualifier("webhookExecutor") ExecutorService webhookExecutor,
+                         DeliveryAttemptRecorder recorder,
+                         RecoveryProperties props) {
+        this.recovery = recovery;
+        this.webhookRecovery = webhookRecovery;
+        this.completionScheduler = completionScheduler;
+        this.lanes = lanes;
+        this.paymentExecutor = paymentExecutor;
+        this.webhooks = webhooks;
+        this.replays = replays;
+        this.webhookExecutor = webhookExecutor;
+        this.recorder = recorder;
+        this.props = props;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        long deadline = System.nanoTime() + props.getDrainTimeout().toNanos();
+        recovery.stop();
+        webhookRecovery.stop();
+        completionScheduler.stop();
+        replays.stop();
+        lanes.awaitIdle(deadline);
+        await(paymentExecutor, deadline);
+        webhooks.stop();
+        await(webhookExecutor, deadline);
+        recorder.flush();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Depois do WebServerGracefulShutdownLifecycle (DEFAULT_PHASE - 1024): fases maiores param antes
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private static void await(ExecutorService executor, long deadlineNanos) {
+        executor.shutdown();
+        try {
+            long left = deadlineNanos - System.nanoTime();
+            if (left <= 0 || !executor.awaitTermination(left, TimeUnit.NANOSECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
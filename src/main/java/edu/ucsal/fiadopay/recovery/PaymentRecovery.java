@@ -0,0 +1,94 @@
+package edu.ucsal.fiadopay.recovery;
+
+import com.google.common.util.concurrent.RateLimiter;
+import edu.ucsal.fiadopay.config.RecoveryProperties;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.repo.PaymentRepository;
+import edu.ucsal.fiadopay.service.PaymentService;
+import edu.ucsal.fiadopay.shard.ShardContext;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Varre pagamentos PENDING órfãos (criados há mais de min-age e sem tarefa nesta JVM) e os devolve
+ * à conclusão normal. A varredura usa o índice (status, createdAt) com paginação por chave
+ * (createdAt, id), então cada lote é uma busca no índice e não um OFFSET crescente.
+ * O reenfileiramento é limitado por um RateLimiter; o paralelismo é o do próprio paymentExecutor.
+ * A decisão final usa UPDATE condicional (só sai de PENDING uma vez), então rodar de novo é seguro.
+ * Com vários shards, cada um é varrido por vez com a própria chave de paginação.
+ */
+@Service
+public class PaymentRecovery {
+
+    private final PaymentRepository payments;
+    private final PaymentService paymentService;
+    private final RecoveryProperties props;
+    private final ShardRouter shards;
+    private final RateLimiter limiter;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    public PaymentRecovery(PaymentRepository payments, PaymentService paymentService, RecoveryProperties props,
+                           ShardRouter shards) {
+        this.payments = payments;
+        this.paymentService = paymentService;
+        this.props = props;
+        this.shards = shards;
+        this.limiter = RateLimiter.create(props.getMaxPerSecond());
+    }
+
+    // Na partida (poucos segundos depois) e periodicamente
+    @Scheduled(initialDelayString = "${fiadopay.recovery.initial-delay:PT5S}",
+               fixedDelayString = "${fiadopay.recovery.interval:PT1M}")
+    public void run() {
+        if (props.isEnabled()) recover();
+    }
+
+    /** Retorna quantos pagamentos foram reenfileirados nesta varredura. */
+    public int recover() {
+        if (!running.compareAndSet(false, true)) return 0;
+        try {
+            Instant cutoff = Instant.now().minus(props.getMinAge());
+            int resumed = 0;
+            for (int shard = 0; shard < shards.count() && !stopped; shard++) {
+                resumed += recover(shard, cutoff);
+            }
+            return resumed;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int recover(int shard, Instant cutoff) {
+        Instant afterCreatedAt = Instant.EPOCH;
+        String afterId = "";
+        int resumed = 0;
+        while (!stopped) {
+            Instant fromCreatedAt = afterCreatedAt;
+            String fromId = afterId;
+            List<Payment> batch = ShardContext.call(shard, () -> payments.findPendingAfter(Payment.Status.PENDING,
+                    cutoff, fromCreatedAt, fromId, PageRequest.of(0, props.getBatchSize())));
+            for (Payment p : batch) {
+                if (stopped) break;
+                limiter.acquire();
+                if (paymentService.resume(p)) resumed++;
+            }
+            if (batch.size() < props.getBatchSize()) break;
+            Payment last = batch.get(batch.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getId();
+        }
+        return resumed;
+    }
+
+    /** Chamado pela drenagem do shutdown: não reenfileira mais nada. */
+    void stop() {
+        stopped = true;
+    }
+}
@@ -0,0 +1,104 @@
+package edu.ucsal.fiadopay.recovery;
+
+import com.google.common.util.concurrent.RateLimiter;
+import edu.ucsal.fiadopay.config.RecoveryProperties;
+import edu.ucsal.fiadopay.config.WebhookProperties;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.shard.ShardContext;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import edu.ucsal.fiadopay.webhook.WebhookDispatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Na partida, devolve ao {@link WebhookDispatcher} as entregas que a execução anterior deixou sem entregar
+ * e com tentativas sobrando: as que esperavam um retry (o timer para no shutdown) e as que ainda estavam
+ * na listra. Só entram as gravadas antes desta JVM subir; as mais novas já estão com o dispatcher.
+ * Mesma paginação por chave (createdAt, id) e mesmo ritmo (max-per-second) da {@link PaymentRecovery}.
+ * As tentativas continuam de onde pararam, com o mesmo eventId e sequence.
+ */
+@Service
+public class WebhookRecovery {
+
+    private final WebhookDeliveryRepository deliveries;
+    private final WebhookDispatcher dispatcher;
+    private final WebhookProperties webhookProps;
+    private final RecoveryProperties props;
+    private final ShardRouter shards;
+    private final RateLimiter limiter;
+    // Criado antes do servidor web aceitar pagamentos: nenhuma entrega desta execução é mais antiga
+    private final Instant startedAt = Instant.now();
+    private volatile boolean stopped;
+
+    public WebhookRecovery(WebhookDeliveryRepository deliveries, WebhookDispatcher dispatcher,
+                           WebhookProperties webhookProps, RecoveryProperties props, ShardRouter shards) {
+        this.deliveries = deliveries;
+        this.dispatcher = dispatcher;
+        this.webhookProps = webhookProps;
+        this.props = props;
+        this.shards = shards;
+        this.limiter = RateLimiter.create(props.getMaxPerSecond());
+    }
+
+    // Uma vez só, na partida
+    @Scheduled(initialDelayString = "${fiadopay.recovery.initial-delay:PT5S}")
+    public void run() {
+        if (props.isEnabled()) recover();
+    }
+
+    /** Retorna quantas entregas voltaram para o dispatcher. */
+    public int recover() {
+        int resumed = 0;
+        for (int shard = 0; shard < shards.count() && !stopped; shard++) {
+            resumed += recover(shard);
+        }
+        return resumed;
+    }
+
+    private int recover(int shard) {
+        Instant afterCreatedAt = Instant.EPOCH;
+        long afterId = Long.MIN_VALUE;
+        int resumed = 0;
+        while (!stopped) {
+            Instant fromCreatedAt = afterCreatedAt;
+            long fromId = afterId;
+            List<WebhookDelivery> batch = ShardContext.call(shard, () -> deliveries.findUndeliveredAfter(
+                    webhookProps.getMaxAttempts(), startedAt, fromCreatedAt, fromId,
+                    PageRequest.of(0, props.getBatchSize())));
+            for (WebhookDelivery d : batch) {
+                if (stopped) break;
+                limiter.acquire();
+                if (resume(d)) resumed++;
+            }
+            if (batch.size() < props.getBatchSize()) break;
+            WebhookDelivery last = batch.get(batch.size() - 1);
+            afterCreatedAt = last.getCreatedAt();
+            afterId = last.getId();
+        }
+        return resumed;
+    }
+
+    // Listra cheia: espera e tenta de novo, como o replay
+    private boolean resume(WebhookDelivery d) {
+        while (!dispatcher.resume(d)) {
+            if (stopped) return false;
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Chamado pela drenagem do shutdown: não reenfileira mais nada. */
+    void stop() {
+        stopped = true;
+    }
+}
@@ -1,10 +1,73 @@
 package edu.ucsal.fiadopay.repo;
 
 import edu.ucsal.fiadopay.domain.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, String> {
     Optional<Payment> findByIdempotencyKeyAndMerchantId(String ik, Long mid);
+
+    // Retenção: usa o índice (status, updatedAt)
+    List<Payment> findByStatusInAndUpdatedAtBeforeOrderByUpdatedAt(Collection<Payment.Status> statuses,
+                                                                   Instant cutoff, Pageable page);
+
+    // Recuperação: índice (status, createdAt), paginação por chave (createdAt, id) em vez de OFFSET
+    @Query("""
+            select p from Payment p
+            where p.status = :status and p.createdAt < :cutoff
+              and (p.createdAt > :afterCreatedAt or (p.createdAt = :afterCreatedAt and p.id > :afterId))
+            order by p.createdAt, p.id""")
+    List<Payment> findPendingAfter(@Param("status") Payment.Status status,
+                                   @Param("cutoff") Instant cutoff,
+                                   @Param("afterCreatedAt") Instant afterCreatedAt,
+                                   @Param("afterId") String afterId,
+                                   Pageable page);
+
+    // Estatística administrativa (uma vez por shard, somada no scatter-gather)
+    interface StatusCount {
+        Payment.Status getStatus();
+        long getTotal();
+    }
+
+    @Query("select p.status as status, count(p) as total from Payment p group by p.status")
+    List<StatusCount> countByStatus();
+
+    // Consulta em lote: só as colunas do PaymentResponse, sem montar entidades no contexto de persistência.
+    // Só os pagamentos do merchant do token; ids de outros merchants ficam de fora como inexistentes
+    interface PaymentView {
+        String getId();
+        Payment.Status getStatus();
+        String getMethod();
+        BigDecimal getAmount();
+        Integer getInstallments();
+        Double getMonthlyInterest();
+        BigDecimal getTotalWithInterest();
+    }
+
+    @Query("""
+            select p.id as id, p.status as status, p.method as method, p.amount as amount,
+                   p.installments as installments, p.monthlyInterest as monthlyInterest,
+                   p.totalWithInterest as totalWithInterest
+            from Payment p where p.merchantId = :merchantId and p.id in :ids""")
+    List<PaymentView> findViewsByMerchantIdAndIdIn(@Param("merchantId") Long merchantId,
+                                                   @Param("ids") Collection<String> ids);
+
+    // Transição condicional: só um dos concorrentes (tarefa original ou recuperação) decide o pagamento
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.status = :to, p.updatedAt = :at where p.id = :id and p.status = :from")
+    int transitionStatus(@Param("id") String id,
+                         @Param("from") Payment.Status from,
+                         @Param("to") Payment.Status to,
+                         @Param("at") Instant at);
 }
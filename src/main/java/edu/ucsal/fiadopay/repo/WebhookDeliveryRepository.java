@@ -1,6 +1,53 @@
 package edu.ucsal.fiadopay.repo;
 
 import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long>{ }
+import java.time.Instant;
+import java.util.List;
+
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long>{
+
+    // Ponto de partida do contador de sequência (índices paymentId e merchantId,sequence)
+    @Query("select max(d.sequence) from WebhookDelivery d where d.paymentId = :paymentId")
+    Long maxSequenceByPaymentId(@Param("paymentId") String paymentId);
+
+    @Query("select max(d.sequence) from WebhookDelivery d where d.merchantId = :merchantId")
+    Long maxSequenceByMerchantId(@Param("merchantId") Long merchantId);
+
+    long countByDeliveredFalse();
+
+    // Replay: índice (merchantId, createdAt), paginação por chave (createdAt, id); delivered null = todos
+    @Query("""
+            select d from WebhookDelivery d
+            where d.merchantId = :merchantId and d.eventType = :eventType and d.createdAt < :to
+              and (:delivered is null or d.delivered = :delivered)
+              and (d.createdAt > :afterCreatedAt or (d.createdAt = :afterCreatedAt and d.id > :afterId))
+            order by d.createdAt, d.id""")
+    List<WebhookDelivery> findForReplay(@Param("merchantId") Long merchantId,
+                                        @Param("eventType") String eventType,
+                                        @Param("delivered") Boolean delivered,
+                                        @Param("to") Instant to,
+                                        @Param("afterCreatedAt") Instant afterCreatedAt,
+                                        @Param("afterId") Long afterId,
+                                        Pageable page);
+
+    // Recuperação na partida: não entregues com tentativas sobrando, gravados antes de before;
+    // paginação por chave (createdAt, id), na ordem de publicação
+    @Query("""
+            select d from WebhookDelivery d
+            where d.delivered = false and d.attempts < :maxAttempts and d.createdAt < :before
+              and (d.createdAt > :afterCreatedAt or (d.createdAt = :afterCreatedAt and d.id > :afterId))
+            order by d.createdAt, d.id""")
+    List<WebhookDelivery> findUndeliveredAfter(@Param("maxAttempts") int maxAttempts,
+                                               @Param("before") Instant before,
+                                               @Param("afterCreatedAt") Instant afterCreatedAt,
+                                               @Param("afterId") Long afterId,
+                                               Pageable page);
+
+    // Retenção: usa o índice (delivered, lastAttemptAt)
+    List<WebhookDelivery> findByDeliveredTrueAndLastAttemptAtBeforeOrderByLastAttemptAt(Instant cutoff, Pageable page);
+}
@@ -0,0 +1,12 @@
+package edu.ucsal.fiadopay.repo;
+
+import edu.ucsal.fiadopay.domain.WebhookPayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface WebhookPayloadRepository extends JpaRepository<WebhookPayload, Long>{
+
+    @Query("select p.data from WebhookPayload p where p.id = :id")
+    byte[] findDataById(@Param("id") Long id);
+}
@@ -0,0 +1,200 @@
+package edu.ucsal.fiadopay.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Roda de tempo (hashed timing wheel, Varghese &amp; Lauck).
+ * Cada timer é só um nó numa lista. Uma única thread avança a roda a cada tick
+ * e entrega ao executor as tarefas vencidas, sem nenhuma thread dormindo por pagamento.
+ * A precisão é de um tick: uma tarefa nunca dispara antes do prazo e atrasa no máximo ~tickMs.
+ */
+@Slf4j
+public final class HashedTimingWheel implements AutoCloseable {
+
+    // Limite de transferências da fila de entrada por tick, para o tick não atrasar
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor dispatcher;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick; // somente a thread da roda
+
+    public HashedTimingWheel(String name, long tickMs, int wheelSize, Executor dispatcher) {
+        if (tickMs <= 0) throw new IllegalArgumentException("tickMs deve ser > 0");
+        if (wheelSize <= 0) throw new IllegalArgumentException("wheelSize deve ser > 0");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1; // potência de 2
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.dispatcher = dispatcher;
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) throw new RejectedExecutionException("timing wheel parada");
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startNanos;
+        Timeout t = new Timeout(this, task, deadline);
+        pending.incrementAndGet();
+        incoming.add(t);
+        return t;
+    }
+
+    /** Timers agendados que ainda não venceram nem foram cancelados. */
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    public long tickMs() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    /** Para a roda; timers ainda pendentes são descartados e a quantidade é devolvida. */
+    public long stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10 + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = tickNanos * (tick + 1);
+            long sleep = tickDeadline - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                if (!running) break;
+                if (System.nanoTime() - startNanos < tickDeadline) continue;
+            }
+            transferIncoming();
+            wheel[(int) (tick & mask)].expire(tickDeadline);
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout t = incoming.poll();
+            if (t == null) return;
+            if (t.isCancelled()) continue;
+            long calculated = t.deadline / tickNanos;
+            t.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick); // prazo já vencido vai para o tick atual
+            wheel[(int) (ticks & mask)].add(t);
+        }
+    }
+
+    private void dispatch(Timeout t) {
+        if (!t.state.compareAndSet(Timeout.ST_INIT, Timeout.ST_EXPIRED)) return;
+        pending.decrementAndGet();
+        try {
+            if (t.task instanceof DispatchAware aware) aware.onDispatch();
+            dispatcher.execute(t.task);
+        } catch (RejectedExecutionException ignored) {
+            // executor em shutdown: a tarefa fica para a recuperação
+        } catch (RuntimeException e) {
+            // A thread da roda é uma só: um erro aqui não pode parar os demais timers
+            log.error("Falha ao despachar timer vencido", e);
+        }
+    }
+
+    /** Tarefa avisada quando o timer vence, antes de entrar no executor (ex.: medir a espera na fila). */
+    public interface DispatchAware {
+        void onDispatch();
+    }
+
+    public static final class Timeout {
+        private static final int ST_INIT = 0, ST_CANCELLED = 1, ST_EXPIRED = 2;
+
+        private final HashedTimingWheel owner;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+        private long remainingRounds;
+        private Timeout prev, next;
+
+        private Timeout(HashedTimingWheel owner, Runnable task, long deadline) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /** Cancela o timer; o nó sai da lista quando a roda passar pelo balde. */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) return false;
+            owner.pending.decrementAndGet();
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+    }
+
+    // Lista duplamente encadeada; acessada apenas pela thread da roda
+    private final class Bucket {
+        private Timeout head, tail;
+
+        void add(Timeout t) {
+            if (head == null) {
+                head = tail = t;
+            } else {
+                tail.next = t;
+                t.prev = tail;
+                tail = t;
+            }
+        }
+
+        void expire(long tickDeadline) {
+            Timeout t = head;
+            while (t != null) {
+                Timeout next = t.next;
+                if (t.isCancelled()) {
+                    remove(t);
+                } else if (t.remainingRounds <= 0 && t.deadline <= tickDeadline) {
+                    remove(t);
+                    dispatch(t);
+                } else {
+                    t.remainingRounds--;
+                }
+                t = next;
+            }
+        }
+
+        private void remove(Timeout t) {
+            if (t.prev != null) t.prev.next = t.next; else head = t.next;
+            if (t.next != null) t.next.prev = t.prev; else tail = t.prev;
+            t.prev = t.next = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package edu.ucsal.fiadopay.scheduler;
+
+import edu.ucsal.fiadopay.domain.Payment;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agenda a conclusão (decisão + antifraude + webhook) dos pagamentos pendentes.
+ * O atraso simulado fica numa timing wheel; quando o timer vence a tarefa entra na raia do método
+ * ({@link PaymentLanes}) e de lá vai para o paymentExecutor.
+ */
+@Component
+public class PaymentCompletionScheduler {
+
+    private final HashedTimingWheel wheel;
+
+    public PaymentCompletionScheduler(PaymentLanes lanes,
+                                      @Value("${fiadopay.scheduler.tick-ms:10}") long tickMs,
+                                      @Value("${fiadopay.scheduler.wheel-size:512}") int wheelSize) {
+        this.wheel = new HashedTimingWheel("pay-timer", tickMs, wheelSize, lanes);
+    }
+
+    /** onRejected roda se a fila da raia (ou a do merchant nela) estiver cheia quando o timer vencer. */
+    public HashedTimingWheel.Timeout schedule(Payment payment, Runnable completion, Runnable onRejected, long delayMs) {
+        return wheel.schedule(PaymentLanes.task(payment.getMethod(), payment.getMerchantId(), completion, onRejected),
+                delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    public long pending() {
+        return wheel.pendingTimeouts();
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+    }
+}
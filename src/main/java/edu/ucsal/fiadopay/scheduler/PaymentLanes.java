@@ -0,0 +1,235 @@
+package edu.ucsal.fiadopay.scheduler;
+
+import edu.ucsal.fiadopay.config.FairnessProperties;
+import edu.ucsal.fiadopay.config.LaneProperties;
+import edu.ucsal.fiadopay.dto.response.LaneStatus;
+import edu.ucsal.fiadopay.fairness.FairQueue;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raias de prioridade por método (valor de @PaymentMethod) na frente do paymentExecutor.
+ * Cada raia tem vagas próprias, fila limitada e alvo de latência; o pool tem a soma das vagas.
+ * Quando uma vaga libera: primeiro as raias abaixo da própria cota; depois, com borrowing,
+ * qualquer raia com fila usa a vaga de uma raia ociosa. Em cada grupo sai a raia mais atrasada
+ * em relação ao alvo (espera do próximo a sair / latency-target), então um pico de BOLETO ou CARD
+ * não empurra o PIX para o fim da fila. Dentro da raia, a fila é justa entre merchants
+ * ({@link FairQueue}, pesos de fiadopay.fairness): um merchant com 50 mil pagamentos não atrasa o
+ * pagamento de um merchant pequeno, que sai na próxima volta.
+ */
+@Component
+public class PaymentLanes implements Executor {
+
+    public static final String DEFAULT_LANE = "DEFAULT";
+
+    private final Map<String, Lane> byMethod = new LinkedHashMap<>();
+    private final Lane fallback;
+    private final Lane[] lanes;
+    private final ExecutorService pool;
+    private final boolean borrowing;
+    private final int capacity;
+    private int running; // protegido por this
+
+    public PaymentLanes(@Qualifier("paymentExecutor") ExecutorService pool, LaneProperties props,
+                        FairnessProperties fairness) {
+        this.pool = pool;
+        this.borrowing = props.isBorrowing();
+        props.getMethods().forEach((method, cfg) ->
+                byMethod.put(method.toUpperCase(), new Lane(method.toUpperCase(), cfg, props.getWaitSamples(), fairness)));
+        this.fallback = new Lane(DEFAULT_LANE, props.getDefaults(), props.getWaitSamples(), fairness);
+        List<Lane> all = new ArrayList<>(byMethod.values());
+        all.add(fallback);
+        this.lanes = all.toArray(Lane[]::new);
+        this.capacity = props.totalConcurrency();
+    }
+
+    /**
+     * Tarefa de conclusão na raia do método e na fila do merchant; onRejected roda se a fila da raia
+     * ou a do merchant na raia estiver cheia.
+     */
+    public static Runnable task(String method, Long merchantId, Runnable completion, Runnable onRejected) {
+        return new LaneTask(method, merchantId == null ? 0L : merchantId, completion, onRejected);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Lane lane = task instanceof LaneTask t ? laneOf(t.method) : fallback;
+        long merchantId = task instanceof LaneTask t ? t.merchantId : 0L;
+        synchronized (this) {
+            if (lane.queue.size() < lane.maxQueued
+                    && lane.queue.offer(merchantId, new Queued(task, System.nanoTime()))) {
+                dispatch();
+                return;
+            }
+            lane.rejected++;
+        }
+        if (task instanceof LaneTask t && t.onRejected != null) t.onRejected.run();
+        throw new RejectedExecutionException("Fila da raia " + lane.name + " cheia");
+    }
+
+    /** Espera as filas e as tarefas em andamento terminarem (drenagem do shutdown). */
+    public synchronized boolean awaitIdle(long deadlineNanos) {
+        try {
+            while (!idle()) {
+                long left = deadlineNanos - System.nanoTime();
+                if (left <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public synchronized List<LaneStatus> snapshot() {
+        List<LaneStatus> out = new ArrayList<>(lanes.length);
+        for (Lane l : lanes) out.add(l.status());
+        return out;
+    }
+
+    /** Pagamentos esperando por merchant, somando todas as raias. */
+    public synchronized Map<Long, Integer> backlog() {
+        Map<Long, Integer> total = new HashMap<>();
+        for (Lane l : lanes) l.queue.backlog().forEach((id, n) -> total.merge(id, n, Integer::sum));
+        return total;
+    }
+
+    private Lane laneOf(String method) {
+        return method == null ? fallback : byMethod.getOrDefault(method.toUpperCase(), fallback);
+    }
+
+    private void dispatch() {
+        while (running < capacity) {
+            Lane lane = pick();
+            if (lane == null) return;
+            Queued q = lane.queue.poll();
+            running++;
+            if (++lane.running > lane.concurrency) lane.borrowed++;
+            try {
+                pool.execute(() -> run(lane, q));
+            } catch (RejectedExecutionException e) {
+                // pool em shutdown: o que estava nas filas fica PENDING para a recuperação
+                running--;
+                lane.running--;
+                for (Lane l : lanes) l.queue.clear();
+                notifyAll();
+                return;
+            }
+        }
+    }
+
+    private Lane pick() {
+        long now = System.nanoTime();
+        Lane best = mostLate(now, false);
+        return best != null || !borrowing ? best : mostLate(now, true);
+    }
+
+    private Lane mostLate(long now, boolean borrow) {
+        Lane best = null;
+        double bestScore = -1;
+        for (Lane l : lanes) {
+            if (l.queue.isEmpty() || (!borrow && l.running >= l.concurrency)) continue;
+            double score = (double) (now - l.queue.peek().enqueuedAt) / l.targetNanos;
+            if (score > bestScore) {
+                best = l;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private void run(Lane lane, Queued q) {
+        long waitNanos = System.nanoTime() - q.enqueuedAt;
+        try {
+            q.task.run();
+        } finally {
+            synchronized (this) {
+                running--;
+                lane.running--;
+                lane.completed++;
+                lane.recordWait(waitNanos);
+                dispatch();
+                if (idle()) notifyAll();
+            }
+        }
+    }
+
+    private boolean idle() {
+        if (running > 0) return false;
+        for (Lane l : lanes) if (!l.queue.isEmpty()) return false;
+        return true;
+    }
+
+    private record Queued(Runnable task, long enqueuedAt) {}
+
+    // Repassa o aviso do timer (ex.: PaymentQueueWaitEvent) para a tarefa embrulhada
+    private record LaneTask(String method, long merchantId, Runnable completion, Runnable onRejected)
+            implements Runnable, HashedTimingWheel.DispatchAware {
+
+        @Override
+        public void onDispatch() {
+            if (completion instanceof HashedTimingWheel.DispatchAware aware) aware.onDispatch();
+        }
+
+        @Override
+        public void run() {
+            completion.run();
+        }
+    }
+
+    // Estado de uma raia; todos os campos mutáveis são protegidos pelo lock do PaymentLanes
+    private static final class Lane {
+        final String name;
+        final int concurrency;
+        final int maxQueued;
+        final long targetNanos;
+        final FairQueue<Queued> queue;
+        final long[] waits;
+        long waitCount;
+        int running;
+        long completed;
+        long borrowed;
+        long rejected;
+        long overTarget;
+
+        Lane(String name, LaneProperties.Lane cfg, int samples, FairnessProperties fairness) {
+            this.name = name;
+            this.queue = new FairQueue<>(fairness.getMaxQueuedPerMerchant(), fairness::weightOf);
+            this.concurrency = cfg.getConcurrency();
+            this.maxQueued = cfg.getMaxQueued();
+            this.targetNanos = Math.max(1, cfg.getLatencyTarget().toNanos());
+            this.waits = new long[Math.max(1, samples)];
+        }
+
+        void recordWait(long nanos) {
+            waits[(int) (waitCount++ % waits.length)] = nanos;
+            if (nanos > targetNanos) overTarget++;
+        }
+
+        LaneStatus status() {
+            long[] sorted = Arrays.copyOf(waits, (int) Math.min(waitCount, waits.length));
+            Arrays.sort(sorted);
+            return new LaneStatus(name, concurrency, maxQueued, TimeUnit.NANOSECONDS.toMillis(targetNanos),
+                    running, queue.size(), completed, borrowed, rejected, overTarget,
+                    percentileMs(sorted, 0.50), percentileMs(sorted, 0.99), percentileMs(sorted, 1.0));
+        }
+
+        private static double percentileMs(long[] sorted, double p) {
+            if (sorted.length == 0) return 0;
+            int i = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, i)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package edu.ucsal.fiadopay.service;
+
+import com.google.common.collect.Lists;
+import edu.ucsal.fiadopay.auth.TokenService;
+import edu.ucsal.fiadopay.config.LookupProperties;
+import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.repo.PaymentRepository;
+import edu.ucsal.fiadopay.shard.ShardContext;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+@RequiredArgsConstructor
+public class PaymentLookupService {
+
+    private final PaymentRepository payments;
+    private final ShardRouter shards;
+    private final LookupProperties props;
+    private final TokenService tokens;
+
+    /** Merchant do token; chamado antes de começar a resposta em streaming, para o 401 sair normal. */
+    public long merchantOf(String authHeader) {
+        return tokens.verify(authHeader).merchantId();
+    }
+
+    // CONSULTA EM LOTE (POST /payments/lookup): valida antes de começar a resposta em streaming
+    public List<String> normalize(List<String> ids) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.isBlank()) unique.add(id.trim());
+        }
+        if (unique.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe ao menos um id");
+        }
+        if (unique.size() > props.getMaxIds()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Máximo de " + props.getMaxIds() + " ids por consulta");
+        }
+        return new ArrayList<>(unique);
+    }
+
+    /**
+     * Entrega ao sink cada pagamento do merchant encontrado, um IN por bloco de chunk-size ids.
+     * Os pagamentos do merchant ficam todos no shard dele, então só esse shard é consultado; ids de
+     * outros shards, inexistentes ou de outros merchants são omitidos. A ordem não é a do pedido.
+     */
+    public void forEach(long merchantId, List<String> ids, Consumer<PaymentResponse> sink) {
+        int shard = shards.shardOfMerchant(merchantId);
+        List<String> own = ids.stream().filter(id -> shards.shardOfPayment(id) == shard).toList();
+        int chunkSize = Math.max(1, props.getChunkSize());
+        for (List<String> chunk : Lists.partition(own, chunkSize)) {
+            ShardContext.call(shard, () -> payments.findViewsByMerchantIdAndIdIn(merchantId, chunk))
+                    .forEach(v -> sink.accept(toResponse(v)));
+        }
+    }
+
+    private static PaymentResponse toResponse(PaymentRepository.PaymentView v) {
+        return new PaymentResponse(
+                v.getId(),
+                v.getStatus().name(),
+                v.getMethod(),
+                v.getAmount(),
+                v.getInstallments(),
+                v.getMonthlyInterest(),
+                v.getTotalWithInterest()
+        );
+    }
+}
@@ -0,0 +1,100 @@
+package edu.ucsal.fiadopay.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import edu.ucsal.fiadopay.config.ResponseCacheProperties;
+import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.format.PayloadMappers;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Respostas de GET /payments/{id} já serializadas, com ETag, limitadas pelo total de bytes.
+ * Cada formato (JSON, CBOR, Smile) é uma entrada própria, com ETag próprio.
+ * A maioria dos polls vê o mesmo status: sai da memória (ou vira 304) sem ir ao banco nem ao Jackson.
+ * Toda transição chama invalidate depois do commit. Uma leitura que começou antes da transição
+ * não pode repovoar o cache com o status antigo: cada listra de ids tem uma geração, incrementada
+ * pelo invalidate, e quem leu numa geração vencida desfaz o próprio put.
+ */
+@Component
+public class PaymentResponseCache {
+
+    /** Corpo pronto no formato pedido e seu ETag forte (hash do corpo, já entre aspas). */
+    public record Entry(byte[] body, String etag, PayloadFormat format) {
+
+        /** If-None-Match com este ETag (ou "*"); aceita lista e a forma fraca W/"...". */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) return false;
+            for (String tag : ifNoneMatch.split(",")) {
+                String t = tag.trim();
+                if (t.startsWith("W/")) t = t.substring(2);
+                if (t.equals("*") || t.equals(etag)) return true;
+            }
+            return false;
+        }
+    }
+
+    private record Key(String id, PayloadFormat format) {}
+
+    private static final int STRIPES = 1024;
+    private static final int ENTRY_OVERHEAD = 96; // entrada do Guava + record + string do id
+
+    private final PayloadMappers mappers;
+    private final Cache<Key, Entry> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final boolean enabled;
+
+    public PaymentResponseCache(PayloadMappers mappers, ResponseCacheProperties props) {
+        this.mappers = mappers;
+        this.enabled = props.isEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(props.getMaxBytes())
+                .weigher((Key k, Entry e) -> ENTRY_OVERHEAD + 2 * k.id().length() + e.body().length)
+                .expireAfterWrite(props.getTtl())
+                .build();
+    }
+
+    public Entry get(String id, PayloadFormat format, Supplier<PaymentResponse> loader) {
+        if (!enabled) return entry(loader.get(), format);
+        Key key = new Key(id, format);
+        Entry hit = cache.getIfPresent(key);
+        if (hit != null) return hit;
+
+        int stripe = stripe(id);
+        long generation = generations.get(stripe);
+        Entry fresh = entry(loader.get(), format);
+        cache.put(key, fresh);
+        // Houve transição durante a leitura: o que foi lido pode ser o status anterior
+        if (generations.get(stripe) != generation) cache.invalidate(key);
+        return fresh;
+    }
+
+    /** Chamado depois que a transição foi confirmada no banco. */
+    public void invalidate(String id) {
+        generations.incrementAndGet(stripe(id));
+        for (PayloadFormat format : PayloadFormat.values()) cache.invalidate(new Key(id, format));
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private Entry entry(PaymentResponse response, PayloadFormat format) {
+        try {
+            byte[] body = mappers.of(format).writeValueAsBytes(response);
+            return new Entry(body, '"' + Hashing.murmur3_128().hashBytes(body).toString() + '"', format);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int stripe(String id) {
+        return Math.floorMod(id.hashCode(), STRIPES);
+    }
+}
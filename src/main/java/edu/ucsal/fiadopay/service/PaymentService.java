@@ -1,34 +1,42 @@
 package edu.ucsal.fiadopay.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.Striped;
+import edu.ucsal.fiadopay.auth.TokenService;
 import edu.ucsal.fiadopay.domain.Merchant;
 import edu.ucsal.fiadopay.domain.Payment;
-import edu.ucsal.fiadopay.domain.WebhookDelivery;
 import edu.ucsal.fiadopay.dto.request.PaymentRequest;
 import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.handler.AntiFraudRule;
 import edu.ucsal.fiadopay.handler.PaymentHandler;
+import edu.ucsal.fiadopay.idempotency.IdempotencyService;
+import edu.ucsal.fiadopay.jfr.FraudRuleEvent;
+import edu.ucsal.fiadopay.jfr.PaymentCreateEvent;
+import edu.ucsal.fiadopay.jfr.PaymentDecisionEvent;
+import edu.ucsal.fiadopay.jfr.PaymentQueueWaitEvent;
 import edu.ucsal.fiadopay.registry.PaymentHandlerRegistry;
 import edu.ucsal.fiadopay.repo.MerchantRepository;
 import edu.ucsal.fiadopay.repo.PaymentRepository;
-import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.scheduler.PaymentCompletionScheduler;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import edu.ucsal.fiadopay.simulation.ProcessingSimulator;
+import edu.ucsal.fiadopay.webhook.WebhookDispatcher;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
-import org.springframework.beans.factory.annotation.Value;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.Instant;
-import java.util.Base64;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
@@ -36,48 +44,77 @@ public class PaymentService {
     // ==== REPOSITÓRIOS ====
     private final MerchantRepository merchants;
     private final PaymentRepository payments;
-    private final WebhookDeliveryRepository deliveries;
+
+    // ==== SHARDS (pagamentos no shard do merchant; merchants no shard 0) ====
+    private final ShardRouter shards;
 
     // ==== REGISTRY DE HANDLERS (anotações + reflexão) ====
     private final PaymentHandlerRegistry registry;
 
-    // ==== THREAD POOLS (nomeados) ====
-    private final ExecutorService paymentExecutor;
-    private final ExecutorService webhookExecutor;
+    // ==== AGENDAMENTO DA CONCLUSÃO (timing wheel -> raia do método -> paymentExecutor) ====
+    private final PaymentCompletionScheduler completionScheduler;
+
+    // ==== WEBHOOKS (bulkhead + circuit breaker por host) ====
+    private final WebhookDispatcher webhooks;
+
+    // ==== SIMULAÇÃO (latência + aprovação por perfil) ====
+    private final ProcessingSimulator simulator;
 
-    // ==== JACKSON ====
-    private final ObjectMapper objectMapper;
+    // ==== TOKENS ASSINADOS (verificação sem banco) ====
+    private final TokenService tokens;
 
-    // ==== CONFIGURAÇÕES VIA application.yml ====
-    @Value("${fiadopay.webhook-secret}")
-    private String webhookSecret;
+    // ==== IDEMPOTÊNCIA (single-flight + cache de respostas) ====
+    private final IdempotencyService idempotency;
 
-    @Value("${fiadopay.processing-delay-ms}")
-    private long processingDelayMs;
+    // ==== RESPOSTAS DO GET /payments/{id} (serializadas, com ETag; invalidadas a cada transição) ====
+    private final PaymentResponseCache responseCache;
 
-    @Value("${fiadopay.failure-rate}")
-    private double failureRate;
+    // ==== PAGAMENTOS COM CONCLUSÃO AGENDADA NESTA JVM (a recuperação ignora) ====
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // ==== TRANSIÇÃO + PUBLICAÇÃO ATÔMICAS POR PAGAMENTO ====
+    // Sem isso um reembolso logo após o commit do APPROVED publicaria REFUNDED antes do APPROVED
+    private final Striped<Lock> transitions = Striped.lock(256);
 
     // 1. CRIAÇÃO DE PAGAMENTO (endpoint POST /payments)
-    @Transactional
+    // Sem @Transactional: o INSERT é confirmado dentro do single-flight, antes de liberar quem espera
     public PaymentResponse createPayment(String authHeader,
                                          String idempotencyKey,
                                          PaymentRequest req) {
 
-        Merchant merchant = merchantFromAuth(authHeader);
-        Long merchantId = merchant.getId();
+        PaymentCreateEvent event = new PaymentCreateEvent();
+        event.begin();
+        long merchantId = tokens.verify(authHeader).merchantId();
 
-        // ---- IDEMPOTÊNCIA ----
-        if (idempotencyKey != null) {
-            var existing = payments.findByIdempotencyKeyAndMerchantId(idempotencyKey, merchantId);
-            if (existing.isPresent()) {
-                return toResponse(existing.get());
-            }
+        if (idempotencyKey == null) {
+            return create(merchantId, null, null, req, event);
         }
 
+        // ---- IDEMPOTÊNCIA ----
+        String fingerprint = fingerprint(req);
+        var result = idempotency.execute(merchantId, idempotencyKey, fingerprint,
+                () -> shards.onMerchant(merchantId,
+                                () -> payments.findByIdempotencyKeyAndMerchantId(idempotencyKey, merchantId))
+                        .map(p -> new IdempotencyService.Stored<>(p.getRequestFingerprint(), toResponse(p))),
+                () -> create(merchantId, idempotencyKey, fingerprint, req, event));
+        if (!result.replayed()) return result.response();
+
+        // O cache só poupa o INSERT e a busca pela chave: o retry responde com o status atual, como um GET.
+        // Linha já arquivada pela retenção: fica a resposta guardada
+        String id = result.response().id();
+        PaymentResponse current = shards.onPayment(id, () -> payments.findById(id))
+                .map(this::toResponse)
+                .orElse(result.response());
+        event.replayed(current, merchantId);
+        event.commit();
+        return current;
+    }
+
+    private PaymentResponse create(long merchantId, String idempotencyKey, String fingerprint,
+                                   PaymentRequest req, PaymentCreateEvent event) {
         // ---- CRIA ENTIDADE BASE ----
         Payment payment = Payment.builder()
-                .id("pay_" + UUID.randomUUID().toString().substring(0, 8))
+                .id(shards.newPaymentId(merchantId))
                 .merchantId(merchantId)
                 .method(req.method().toUpperCase())
                 .amount(req.amount())
@@ -87,6 +124,7 @@ public class PaymentService {
                 .createdAt(Instant.now())
                 .updatedAt(Instant.now())
                 .idempotencyKey(idempotencyKey)
+                .requestFingerprint(fingerprint)
                 .metadataOrderId(req.metadataOrderId())
                 .build();
 
@@ -98,57 +136,100 @@ public class PaymentService {
             payment.setTotalWithInterest(req.amount());
         }
 
-        payments.save(payment);
+        // Flush aqui: a violação da uk_payment_merchant_idempotency aparece dentro do single-flight
+        shards.onMerchant(merchantId, () -> payments.saveAndFlush(payment));
 
         // ---- PROCESSAMENTO ASSÍNCRONO (simula aprovação/recusa) ----
-        paymentExecutor.execute(() -> processAsync(payment));
+        // Nenhuma thread dorme: o timer vence e só então a decisão vai para a raia do método.
+        // Só agenda depois do commit; com delay 0 a conclusão chegaria antes do INSERT.
+        long delayMs = simulator.nextDelayMs(payment);
+        afterCommit(() -> scheduleCompletion(payment, delayMs));
 
+        event.created(payment, handler);
+        event.commit();
         return toResponse(payment);
     }
 
-    // 2. PROCESSAMENTO ASSÍNCRONO (delay + antifraude + webhook)
+    // 1.1. RECUPERAÇÃO: devolve à conclusão um PENDING órfão (sem tarefa nesta JVM), sem novo atraso
+    public boolean resume(Payment payment) {
+        return scheduleCompletion(payment, 0);
+    }
+
+    private boolean scheduleCompletion(Payment payment, long delayMs) {
+        if (!inFlight.add(payment.getId())) return false;
+        // Raia do método (ou a fila do merchant nela) cheia: fica PENDING e a recuperação devolve depois de min-age
+        completionScheduler.schedule(payment,
+                PaymentQueueWaitEvent.track(payment, delayMs, () -> processAsync(payment)),
+                () -> inFlight.remove(payment.getId()), delayMs);
+        return true;
+    }
+
+    // 2. PROCESSAMENTO ASSÍNCRONO (antifraude + decisão + webhook), após o delay simulado
     private void processAsync(Payment payment) {
-        sleepSilently(processingDelayMs);
+        try {
+            decide(payment);
+        } finally {
+            inFlight.remove(payment.getId());
+        }
+    }
 
-        boolean approved = Math.random() > failureRate;
+    private void decide(Payment payment) {
+        PaymentDecisionEvent event = new PaymentDecisionEvent();
+        event.begin();
+        boolean approved = simulator.approve(payment);
         Merchant merchant = merchants.findById(payment.getMerchantId()).orElse(null);
 
-        // ---- ANTIFRAUDE (todas as regras anotadas com @AntiFraud) ----
-        boolean fraud = registry.getFraudRules().stream()
-                .anyMatch(rule -> rule.isFraud(payment, merchant));
+        // ---- ANTIFRAUDE (todas as regras anotadas com @AntiFraud; para na primeira que acusar) ----
+        boolean fraud = false;
+        for (AntiFraudRule rule : registry.getFraudRules()) {
+            FraudRuleEvent ruleEvent = new FraudRuleEvent();
+            ruleEvent.begin();
+            fraud = rule.isFraud(payment, merchant);
+            ruleEvent.evaluated(payment, rule, fraud);
+            ruleEvent.commit();
+            if (fraud) break;
+        }
 
-        payment.setStatus(fraud ? Payment.Status.DECLINED :
-                approved ? Payment.Status.APPROVED : Payment.Status.DECLINED);
-        payment.setUpdatedAt(Instant.now());
-        payments.save(payment);
+        Payment.Status status = fraud ? Payment.Status.DECLINED :
+                approved ? Payment.Status.APPROVED : Payment.Status.DECLINED;
+        Instant now = Instant.now();
+        // UPDATE condicional + webhook: se outro processo já decidiu (ex.: recuperação), não publica de novo
+        if (!transition(payment, Payment.Status.PENDING, status, now)) {
+            return;
+        }
 
-        // ---- ENVIA WEBHOOK ----
-        sendWebhookAsync(payment);
+        event.decided(payment, fraud);
+        event.commit();
     }
 
     // 3. BUSCA DE PAGAMENTO (GET /payments/{id})
 
     public PaymentResponse getPayment(String id) {
-        return payments.findById(id)
+        return shards.onPayment(id, () -> payments.findById(id))
                 .map(this::toResponse)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    // Polling: corpo pronto e ETag da memória; só o primeiro GET depois de cada transição vai ao banco
+    public PaymentResponseCache.Entry getPaymentCached(String id, PayloadFormat format) {
+        return responseCache.get(id, format, () -> getPayment(id));
+    }
+
     // 4. REEMBOLSO (POST /refunds)
     public Map<String, Object> refund(String authHeader, String paymentId) {
-        Merchant merchant = merchantFromAuth(authHeader);
-        Payment p = payments.findById(paymentId)
+        long merchantId = tokens.verify(authHeader).merchantId();
+        Payment p = shards.onPayment(paymentId, () -> payments.findById(paymentId))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
-        if (!merchant.getId().equals(p.getMerchantId())) {
+        if (p.getMerchantId() != merchantId) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN);
         }
 
-        p.setStatus(Payment.Status.REFUNDED);
-        p.setUpdatedAt(Instant.now());
-        payments.save(p);
-
-        sendWebhookAsync(p);
+        // UPDATE condicional, como na decisão: só um reembolso vence e só um webhook sai.
+        // Um save() da entidade lida acima sobrescreveria uma transição concorrente (ex.: EXPIRED).
+        if (!transition(p, Payment.Status.APPROVED, Payment.Status.REFUNDED, Instant.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Só pagamentos aprovados podem ser reembolsados");
+        }
 
         return Map.of(
                 "id", "ref_" + UUID.randomUUID().toString().substring(0, 8),
@@ -156,122 +237,49 @@ public class PaymentService {
         );
     }
 
-    // ==============================================================
-    // 5. AUTENTICAÇÃO FAKE (Bearer FAKE-<id>)
-    // ==============================================================
-    private Merchant merchantFromAuth(String auth) {
-        if (auth == null || !auth.startsWith("Bearer FAKE-")) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
-        }
-        String raw = auth.substring("Bearer FAKE-".length());
-        long id;
-        try {
-            id = Long.parseLong(raw);
-        } catch (NumberFormatException ex) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
-        }
-        return merchants.findById(id)
-                .filter(m -> m.getStatus() == Merchant.Status.ACTIVE)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
-    }
-
-    // 6. WEBHOOK (envio + retry exponencial usando webhookExecutor)
-
-    private void sendWebhookAsync(Payment p) {
-        webhookExecutor.execute(() -> sendWebhook(p));
-    }
-
-    private void sendWebhook(Payment p) {
-        Merchant merchant = merchants.findById(p.getMerchantId()).orElse(null);
-        if (merchant == null || merchant.getWebhookUrl() == null || merchant.getWebhookUrl().isBlank()) {
-            return;
-        }
-
-        String payload = buildPayload(p);
-        if (payload == null) return;
-
-        String signature = hmac(payload, webhookSecret);
-
-        WebhookDelivery delivery = deliveries.save(WebhookDelivery.builder()
-                .eventId("evt_" + UUID.randomUUID().toString().substring(0, 8))
-                .eventType("payment.updated")
-                .paymentId(p.getId())
-                .targetUrl(merchant.getWebhookUrl())
-                .signature(signature)
-                .payload(payload)
-                .attempts(0)
-                .delivered(false)
-                .lastAttemptAt(null)
-                .build());
-
-        // Primeiro envio (e retries) também no pool de webhooks
-        webhookExecutor.execute(() -> tryDeliver(delivery.getId()));
-    }
-
-    @SneakyThrows
-    private void tryDeliver(Long deliveryId) {
-        WebhookDelivery d = deliveries.findById(deliveryId).orElse(null);
-        if (d == null) return;
+    // 5. UTILS
 
+    // UPDATE condicional + webhook sob o lock do pagamento: os eventos entram na listra na ordem das transições
+    private boolean transition(Payment p, Payment.Status from, Payment.Status to, Instant at) {
+        Lock lock = transitions.get(p.getId());
+        lock.lock();
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder(URI.create(d.getTargetUrl()))
-                    .header("Content-Type", "application/json")
-                    .header("X-Event-Type", d.getEventType())
-                    .header("X-Signature", d.getSignature())
-                    .POST(HttpRequest.BodyPublishers.ofString(d.getPayload()))
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            d.setAttempts(d.getAttempts() + 1);
-            d.setLastAttemptAt(Instant.now());
-            d.setDelivered(response.statusCode() >= 200 && response.statusCode() < 300);
-            deliveries.save(d);
-
-            if (!d.isDelivered() && d.getAttempts() < 5) {
-                Thread.sleep(1000L * d.getAttempts()); // back-off exponencial
-                webhookExecutor.execute(() -> tryDeliver(deliveryId));
+            if (shards.onPayment(p.getId(), () -> payments.transitionStatus(p.getId(), from, to, at)) == 0) {
+                return false;
             }
-        } catch (Exception e) {
-            d.setAttempts(d.getAttempts() + 1);
-            d.setLastAttemptAt(Instant.now());
-            d.setDelivered(false);
-            deliveries.save(d);
-
-            if (d.getAttempts() < 5) {
-                Thread.sleep(1000L * d.getAttempts());
-                webhookExecutor.execute(() -> tryDeliver(deliveryId));
+            responseCache.invalidate(p.getId());
+            p.setStatus(to);
+            p.setUpdatedAt(at);
+            try {
+                webhooks.publish(p);
+            } catch (RuntimeException e) {
+                // A transição já está confirmada: quem a pediu recebe o resultado dela, não um 500
+                log.error("Transição {} -> {} de {} confirmada, mas o webhook não foi publicado", from, to, p.getId(), e);
             }
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
-    // 7. UTILS
-    private String buildPayload(Payment p) {
-        try {
-            Map<String, Object> data = Map.of(
-                    "paymentId", p.getId(),
-                    "status", p.getStatus().name(),
-                    "occurredAt", Instant.now().toString()
-            );
-            Map<String, Object> event = Map.of(
-                    "id", "evt_" + UUID.randomUUID().toString().substring(0, 8),
-                    "type", "payment.updated",
-                    "data", data
-            );
-            return objectMapper.writeValueAsString(event);
-        } catch (Exception e) {
-            return null;
-        }
+
+    // Corpo normalizado (método em maiúsculas, 100 == 100.00, parcelas padrão 1)
+    private static String fingerprint(PaymentRequest req) {
+        return IdempotencyService.fingerprint(req.method().toUpperCase(), req.currency(),
+                req.amount().stripTrailingZeros().toPlainString(),
+                req.installments() == null ? 1 : req.installments(), req.metadataOrderId());
     }
 
-    private static String hmac(String payload, String secret) {
-        try {
-            var mac = javax.crypto.Mac.getInstance("HmacSHA256");
-            mac.init(new javax.crypto.spec.SecretKeySpec(secret.getBytes(), "HmacSHA256"));
-            return Base64.getEncoder().encodeToString(mac.doFinal(payload.getBytes()));
-        } catch (Exception e) {
-            return "";
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private PaymentResponse toResponse(Payment p) {
@@ -285,12 +293,4 @@ public class PaymentService {
                 p.getTotalWithInterest()
         );
     }
-
-    private void sleepSilently(long ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package edu.ucsal.fiadopay.service;
+
+import edu.ucsal.fiadopay.dto.request.QuoteRequest;
+import edu.ucsal.fiadopay.dto.response.QuoteResponse;
+import edu.ucsal.fiadopay.handler.InstallmentTable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class QuoteService {
+
+    private final InstallmentTable installmentTable;
+
+    // COTAÇÃO (POST /quotes): só leitura das tabelas, nenhum acesso ao banco
+    public QuoteResponse quote(QuoteRequest req) {
+        boolean cart = req.items() != null && !req.items().isEmpty();
+        if (!cart && req.amount() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe amount ou items");
+        }
+        BigDecimal rate = req.monthlyInterest() != null ? req.monthlyInterest() : installmentTable.defaultMonthlyInterest();
+
+        BigDecimal amount = req.amount();
+        List<QuoteResponse.ItemQuote> items = List.of();
+        if (cart) {
+            amount = BigDecimal.ZERO;
+            items = new ArrayList<>(req.items().size());
+            for (QuoteRequest.Item item : req.items()) {
+                int quantity = item.quantity() == null ? 1 : item.quantity();
+                BigDecimal subtotal = item.amount().multiply(BigDecimal.valueOf(quantity));
+                items.add(new QuoteResponse.ItemQuote(item.id(), quantity, subtotal,
+                        installmentTable.plans(subtotal, rate)));
+                amount = amount.add(subtotal);
+            }
+        }
+
+        return new QuoteResponse(amount.setScale(2, RoundingMode.HALF_UP), req.currency() == null ? "BRL" : req.currency(), rate.doubleValue(),
+                installmentTable.plans(amount, rate), items);
+    }
+}
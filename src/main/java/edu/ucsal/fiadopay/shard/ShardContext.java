@@ -0,0 +1,39 @@
+package edu.ucsal.fiadopay.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard da thread atual, lido pelo {@link ShardRoutingDataSource} quando uma conexão é obtida.
+ * Fora de um escopo vale o shard 0 (dados globais). O escopo precisa envolver a transação inteira:
+ * a conexão é escolhida uma vez, na primeira instrução.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    public static void run(int shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package edu.ucsal.fiadopay.shard;
+
+import edu.ucsal.fiadopay.config.ShardingProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decide o shard de cada operação sobre pagamentos e entregas de webhook.
+ * - Merchant: merchantId mod N (ids sequenciais distribuem em rodízio).
+ * - Pagamento: hash do id mod N; o id é sorteado até cair no shard do merchant, então
+ *   GET /payments/{id} acha o shard só pelo id, sem consulta global.
+ * - Consultas administrativas: scatter-gather em paralelo, uma tarefa por shard.
+ * Merchants e tokens ficam sempre no shard 0 (fora de qualquer escopo).
+ */
+@Component
+public class ShardRouter {
+
+    private final int shards;
+    private final ExecutorService scatterExecutor;
+
+    public ShardRouter(ShardingProperties props) {
+        this.shards = Math.max(1, props.getShards());
+        this.scatterExecutor = Executors.newFixedThreadPool(shards, r -> {
+            Thread t = new Thread(r, "shard-scatter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int count() {
+        return shards;
+    }
+
+    public int shardOfMerchant(long merchantId) {
+        return (int) Math.floorMod(merchantId, (long) shards);
+    }
+
+    public int shardOfPayment(String paymentId) {
+        return Math.floorMod(paymentId.hashCode(), shards);
+    }
+
+    /** pay_xxxxxxxx que cai no shard do merchant (em média N sorteios). */
+    public String newPaymentId(long merchantId) {
+        int shard = shardOfMerchant(merchantId);
+        String id;
+        do {
+            id = "pay_" + UUID.randomUUID().toString().substring(0, 8);
+        } while (shardOfPayment(id) != shard);
+        return id;
+    }
+
+    public <T> T onMerchant(long merchantId, Supplier<T> action) {
+        return ShardContext.call(shardOfMerchant(merchantId), action);
+    }
+
+    public <T> T onPayment(String paymentId, Supplier<T> action) {
+        return ShardContext.call(shardOfPayment(paymentId), action);
+    }
+
+    /** Roda a ação em cada shard, um depois do outro (jobs de manutenção). */
+    public void forEach(IntConsumer action) {
+        for (int shard = 0; shard < shards; shard++) {
+            int s = shard;
+            ShardContext.run(s, () -> action.accept(s));
+        }
+    }
+
+    /** Roda a consulta em todos os shards em paralelo; resultados na ordem dos shards. */
+    public <T> List<T> scatter(IntFunction<T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            int s = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> ShardContext.call(s, () -> query.apply(s)), scatterExecutor));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    @PreDestroy
+    public void stop() {
+        scatterExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,124 @@
+package edu.ucsal.fiadopay.shard;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Leva o schema dos shards 1..N-1 ao do shard 0 depois que o Hibernate (ddl-auto) o criou lá.
+ * O DDL sai do próprio H2 (SCRIPT NODATA) e é reaplicado com IF NOT EXISTS, então rodar de novo
+ * sobre um banco em arquivo é seguro. Numa tabela que já existe no shard, as colunas que faltam
+ * (ex.: uma coluna nova da entidade, que o ddl-auto só criou no shard 0) são adicionadas com a
+ * definição do shard 0; se uma delas não puder ser criada, a aplicação não sobe com shards divergentes.
+ * Tabelas globais (merchants) não são copiadas.
+ * Num shard novo as sequences recomeçam em n * 10^12: o otimizador pooled do Hibernate é um só
+ * para todos os shards, e faixas disjuntas mantêm os ids das entregas únicos no conjunto.
+ */
+@Component
+public class ShardSchemaReplicator {
+
+    static final long SEQUENCE_SPACING = 1_000_000_000_000L;
+
+    private static final Set<String> GLOBAL = Set.of("\"PUBLIC\".\"MERCHANT\"", "\"PUBLIC\".\"MERCHANT_SEQ\"");
+    private static final Pattern CREATE = Pattern.compile(
+            "^CREATE (MEMORY |CACHED )?(TABLE|SEQUENCE|INDEX|UNIQUE INDEX) (?!IF NOT EXISTS)");
+    private static final Pattern ADD_CONSTRAINT = Pattern.compile(" ADD CONSTRAINT (?!IF NOT EXISTS)");
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "^CREATE (?:MEMORY |CACHED )?TABLE (?:IF NOT EXISTS )?\"PUBLIC\"\\.\"([^\"]+)\"\\(\n(.*)\n\\)", Pattern.DOTALL);
+
+    private final ShardRoutingDataSource dataSource;
+
+    // Depende do EntityManagerFactory só para rodar depois do ddl-auto no shard 0
+    public ShardSchemaReplicator(ShardRoutingDataSource dataSource, EntityManagerFactory schemaReady) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void replicate() throws SQLException {
+        if (dataSource.size() == 1) return;
+        List<String> ddl = schemaOfShardZero();
+        for (int n = 1; n < dataSource.size(); n++) {
+            try (Connection c = dataSource.shard(n).getConnection(); Statement st = c.createStatement()) {
+                boolean fresh = !hasTable(st, "PAYMENT");
+                for (String sql : ddl) {
+                    st.execute(sql);
+                    // Antes dos índices e constraints da tabela, que podem usar as colunas novas
+                    var table = CREATE_TABLE.matcher(sql);
+                    if (table.find()) addMissingColumns(c, st, n, table.group(1), table.group(2));
+                }
+                if (fresh) restartSequences(st, n * SEQUENCE_SPACING + 1);
+            }
+        }
+    }
+
+    private List<String> schemaOfShardZero() throws SQLException {
+        List<String> ddl = new ArrayList<>();
+        try (Connection c = dataSource.shard(0).getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS")) {
+            while (rs.next()) {
+                String sql = rs.getString(1);
+                if (!sql.startsWith("CREATE") && !sql.startsWith("ALTER TABLE")) continue;
+                if (GLOBAL.stream().anyMatch(sql::contains)) continue;
+                sql = CREATE.matcher(sql).replaceFirst("$0IF NOT EXISTS ");
+                sql = ADD_CONSTRAINT.matcher(sql).replaceFirst("$0IF NOT EXISTS ");
+                ddl.add(sql);
+            }
+        }
+        return ddl;
+    }
+
+    // columns: uma definição por linha, como no CREATE TABLE do SCRIPT ("NOME" TIPO [DEFAULT ...] [NOT NULL])
+    private static void addMissingColumns(Connection c, Statement st, int shard, String table, String columns)
+            throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement ps = c.prepareStatement("SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) existing.add(rs.getString(1));
+            }
+        }
+        for (String line : columns.split("\n")) {
+            String definition = line.strip();
+            if (definition.endsWith(",")) definition = definition.substring(0, definition.length() - 1);
+            String column = definition.substring(1, definition.indexOf('"', 1));
+            if (existing.contains(column)) continue;
+            try {
+                st.execute("ALTER TABLE \"PUBLIC\".\"" + table + "\" ADD COLUMN IF NOT EXISTS " + definition);
+            } catch (SQLException e) {
+                // Ex.: NOT NULL sem DEFAULT numa tabela com linhas; melhor não subir do que gravar em schemas diferentes
+                throw new IllegalStateException("Shard " + shard + ": não foi possível criar a coluna " + table + "."
+                        + column + " do shard 0 (" + definition + "); migre o shard manualmente", e);
+            }
+        }
+    }
+
+    private static boolean hasTable(Statement st, String table) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = '" + table + "'")) {
+            rs.next();
+            return rs.getInt(1) > 0;
+        }
+    }
+
+    private static void restartSequences(Statement st, long start) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (ResultSet rs = st.executeQuery("SELECT SEQUENCE_NAME FROM INFORMATION_SCHEMA.SEQUENCES "
+                + "WHERE SEQUENCE_SCHEMA = 'PUBLIC'")) {
+            while (rs.next()) names.add(rs.getString(1));
+        }
+        for (String name : names) st.execute("ALTER SEQUENCE \"PUBLIC\".\"" + name + "\" RESTART WITH " + start);
+    }
+}
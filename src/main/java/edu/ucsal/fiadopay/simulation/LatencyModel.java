@@ -0,0 +1,71 @@
+package edu.ucsal.fiadopay.simulation;
+
+import edu.ucsal.fiadopay.config.SimulationProperties;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+@FunctionalInterface
+public interface LatencyModel {
+
+    long sampleMs(RandomGenerator random);
+
+    static LatencyModel of(SimulationProperties.Latency spec) {
+        LatencyModel model = switch (spec.getType()) {
+            case FIXED -> fixed(spec.getFixedMs());
+            case UNIFORM -> uniform(spec.getMinMs(), spec.getMaxMs());
+            case LOGNORMAL -> logNormal(spec.getMedianMs(), spec.getSigma());
+            case EMPIRICAL -> empirical(spec.getMinMs(), spec.getPercentiles());
+        };
+        long cap = spec.getCapMs();
+        return cap > 0 ? random -> Math.min(model.sampleMs(random), cap) : model;
+    }
+
+    static LatencyModel fixed(long ms) {
+        return random -> ms;
+    }
+
+    static LatencyModel uniform(long minMs, long maxMs) {
+        if (maxMs < minMs) {
+            throw new IllegalArgumentException("latency.max-ms < latency.min-ms");
+        }
+        return random -> minMs == maxMs ? minMs : random.nextLong(minMs, maxMs + 1);
+    }
+
+    // mediana * e^(sigma * N(0,1)): cauda longa à direita, como latência real de adquirente
+    static LatencyModel logNormal(long medianMs, double sigma) {
+        double mu = Math.log(Math.max(1, medianMs));
+        return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    // Inversa da CDF por interpolação linear entre os percentis informados
+    static LatencyModel empirical(long floorMs, List<SimulationProperties.Percentile> percentiles) {
+        if (percentiles.isEmpty()) {
+            throw new IllegalArgumentException("latency.percentiles vazio para EMPIRICAL");
+        }
+        var sorted = percentiles.stream()
+                .sorted(Comparator.comparingDouble(SimulationProperties.Percentile::getP))
+                .toList();
+        int n = sorted.size() + 1;
+        double[] ps = new double[n];
+        long[] ms = new long[n];
+        ps[0] = 0.0;
+        ms[0] = Math.min(floorMs, sorted.get(0).getMs());
+        for (int i = 1; i < n; i++) {
+            ps[i] = sorted.get(i - 1).getP();
+            ms[i] = sorted.get(i - 1).getMs();
+        }
+        return random -> {
+            double u = random.nextDouble() * 100.0;
+            for (int i = 1; i < n; i++) {
+                if (u <= ps[i]) {
+                    double span = ps[i] - ps[i - 1];
+                    double t = span == 0 ? 1.0 : (u - ps[i - 1]) / span;
+                    return Math.round(ms[i - 1] + t * (ms[i] - ms[i - 1]));
+                }
+            }
+            return ms[n - 1];
+        };
+    }
+}
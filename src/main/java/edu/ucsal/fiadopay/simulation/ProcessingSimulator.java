@@ -0,0 +1,91 @@
+package edu.ucsal.fiadopay.simulation;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import edu.ucsal.fiadopay.config.SimulationProperties;
+import edu.ucsal.fiadopay.domain.Payment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Decide latência e aprovação simuladas de cada pagamento conforme o perfil ativo.
+ * Sem seed, cada thread sorteia do seu próprio gerador (sem o Random compartilhado de Math.random()).
+ * Com seed, cada sorteio sai de um SplittableRandom derivado de (seed, identidade estável do pedido,
+ * tipo do sorteio). O id pay_xxx é aleatório, então a identidade vem do que o gerador de carga envia:
+ * (merchant, Idempotency-Key), senão (merchant, metadataOrderId). Com chave ou pedido, o mesmo pedido tem
+ * a mesma latência e a mesma decisão em qualquer execução, seja qual for a thread do pool que o processa
+ * ou a ordem de chegada. Sem nenhum dos dois, a identidade é o próprio id: os sorteios do pagamento são
+ * estáveis entre si (latência, aprovação, recuperação), mas não se repetem em outra execução.
+ */
+@Component
+public class ProcessingSimulator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int DRAW_LATENCY = 1;
+    private static final int DRAW_APPROVAL = 2;
+    private static final HashFunction IDENTITY = Hashing.murmur3_128();
+
+    private final String profileName;
+    private final SimulationProperties.Profile profile;
+    private final LatencyModel latency;
+    private final Long seed;
+    public ProcessingSimulator(SimulationProperties props,
+                               @Value("${fiadopay.processing-delay-ms}") long legacyDelayMs,
+                               @Value("${fiadopay.failure-rate}") double legacyFailureRate) {
+        if (StringUtils.hasText(props.getActiveProfile())) {
+            this.profileName = props.getActiveProfile();
+            this.profile = props.getProfiles().get(profileName);
+            if (profile == null) {
+                throw new IllegalArgumentException("Perfil de simulação inexistente: " + profileName);
+            }
+        } else {
+            this.profileName = "legacy";
+            this.profile = new SimulationProperties.Profile();
+            profile.getLatency().setFixedMs(legacyDelayMs);
+            profile.setFailureRate(legacyFailureRate);
+        }
+        this.latency = LatencyModel.of(profile.getLatency());
+        this.seed = profile.getSeed();
+    }
+
+    public long nextDelayMs(Payment payment) {
+        return Math.max(0, latency.sampleMs(random(payment, DRAW_LATENCY)));
+    }
+
+    public boolean approve(Payment payment) {
+        return random(payment, DRAW_APPROVAL).nextDouble() > failureRate(payment);
+    }
+
+    public double failureRate(Payment payment) {
+        Double byMerchant = profile.getMerchantFailureRates().get(payment.getMerchantId());
+        if (byMerchant != null) return byMerchant;
+        Double byMethod = profile.getMethodFailureRates().get(payment.getMethod());
+        if (byMethod != null) return byMethod;
+        return profile.getFailureRate();
+    }
+
+    public String profileName() {
+        return profileName;
+    }
+
+    // Gerador novo por sorteio: o SplittableRandom espalha a semente (mix64), então pedidos vizinhos não se correlacionam
+    private RandomGenerator random(Payment payment, int draw) {
+        if (seed == null) return ThreadLocalRandom.current();
+        long identity = IDENTITY.hashString(identityOf(payment), StandardCharsets.UTF_8).asLong();
+        return new SplittableRandom(seed + GOLDEN_GAMMA * (2 * identity + draw));
+    }
+
+    private String identityOf(Payment payment) {
+        String merchant = "m" + payment.getMerchantId();
+        if (payment.getIdempotencyKey() != null) return merchant + "|k|" + payment.getIdempotencyKey();
+        if (payment.getMetadataOrderId() != null) return merchant + "|o|" + payment.getMetadataOrderId();
+        if (payment.getId() == null) return merchant;
+        return merchant + "|p|" + payment.getId();
+    }
+}
@@ -0,0 +1,82 @@
+package edu.ucsal.fiadopay.webhook;
+
+/**
+ * Circuit breaker de um host de webhook.
+ * CLOSED conta falhas consecutivas. Ao atingir o limite, abre (OPEN) e recusa tentativas.
+ * Depois de openDurationMs, libera uma única sonda (HALF_OPEN): se ela tiver sucesso, fecha;
+ * se falhar, abre de novo.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openDurationMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationMs = openDurationMs;
+    }
+
+    /** true se a tentativa pode seguir; em HALF_OPEN apenas a primeira recebe permissão. */
+    public synchronized boolean tryAcquire(long nowMs) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowMs - openedAt < openDurationMs) return false;
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure(long nowMs) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nowMs;
+        }
+        probeInFlight = false;
+    }
+
+    /** Quanto esperar até a próxima tentativa fazer sentido (0 se já pode tentar). */
+    public synchronized long retryAfterMs(long nowMs) {
+        return switch (state) {
+            case CLOSED -> 0;
+            case OPEN -> Math.max(0, openDurationMs - (nowMs - openedAt));
+            case HALF_OPEN -> probeInFlight ? openDurationMs : 0;
+        };
+    }
+
+    public synchronized void reset() {
+        onSuccess();
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized int consecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long openedAt() {
+        return state == State.CLOSED ? 0 : openedAt;
+    }
+}
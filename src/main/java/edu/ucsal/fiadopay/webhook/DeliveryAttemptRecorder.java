@@ -0,0 +1,155 @@
+package edu.ucsal.fiadopay.webhook;
+
+import jakarta.annotation.PreDestroy;
+import edu.ucsal.fiadopay.shard.ShardContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava os resultados das tentativas de webhook em lote.
+ * Em vez de um deliveries.save(d) por tentativa, os resultados entram numa fila limitada.
+ * Uma thread os envia num único JDBC batch (UPDATE ... WHERE id = ?) a cada flush-interval
+ * ou quando o lote enche. Se a fila encher, quem registra espera (back-pressure).
+ * Cada resultado leva o shard da entrega; o lote vira um JDBC batch por shard.
+ * Se o banco falhar, o lote volta para a fila e é regravado no próximo ciclo.
+ */
+@Slf4j
+@Component
+public class DeliveryAttemptRecorder {
+
+    // "attempts <= ?" e "delivered OR ?" tornam a escrita monotônica: um lote atrasado (ou um replay
+    // que falhou) nunca regride uma entrega
+    private static final String UPDATE_SQL =
+            "UPDATE webhook_delivery SET attempts = ?, delivered = (delivered OR ?), last_attempt_at = ? WHERE id = ? AND attempts <= ?";
+
+    public record Attempt(int shard, long deliveryId, int attempts, boolean delivered, Instant at) {}
+
+    private final JdbcTemplate jdbc;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<Attempt> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public DeliveryAttemptRecorder(JdbcTemplate jdbc,
+                                   @Value("${fiadopay.webhook.recorder.batch-size:500}") int batchSize,
+                                   @Value("${fiadopay.webhook.recorder.flush-interval-ms:200}") long flushIntervalMs,
+                                   @Value("${fiadopay.webhook.recorder.queue-capacity:100000}") int queueCapacity) {
+        this.jdbc = jdbc;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::run, "webhook-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void record(int shard, long deliveryId, int attempts, boolean delivered, Instant at) {
+        try {
+            queue.put(new Attempt(shard, deliveryId, attempts, delivered, at));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Grava imediatamente tudo o que está na fila (usado no shutdown e em benchmarks). */
+    public synchronized int flush() {
+        int written = 0;
+        List<Attempt> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            written += write(batch);
+            batch.clear();
+        }
+        return written;
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(2_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void run() {
+        while (running) {
+            Attempt first;
+            try {
+                first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue; // shutdown: o que sobrou na fila vai no flush() do stop()
+            }
+            if (first == null) continue;
+            // Dá tempo para o lote encher antes de ir ao banco
+            if (queue.size() < batchSize - 1) {
+                try {
+                    Thread.sleep(flushIntervalMs);
+                } catch (InterruptedException ignored) {
+                    // shutdown: grava já o que tem
+                }
+            }
+            List<Attempt> batch = new ArrayList<>(batchSize);
+            batch.add(first);
+            synchronized (this) {
+                queue.drainTo(batch, batchSize - 1);
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    requeue(batch, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Devolve um lote que falhou para a fila. É seguro regravar: o UPDATE é monotônico, então um
+     * resultado reenviado depois de outro mais novo simplesmente não altera a linha.
+     */
+    private void requeue(List<Attempt> batch, RuntimeException cause) {
+        int dropped = 0;
+        for (Attempt a : batch) {
+            if (!queue.offer(a)) dropped++;
+        }
+        log.warn("Falha ao gravar lote de {} tentativas de webhook; {} reenfileiradas, {} descartadas (fila cheia)",
+                batch.size(), batch.size() - dropped, dropped, cause);
+        try {
+            Thread.sleep(flushIntervalMs); // não martela um banco fora do ar
+        } catch (InterruptedException ignored) {
+            // shutdown: o flush() do stop() tenta de novo
+        }
+    }
+
+    private int write(List<Attempt> batch) {
+        // Várias tentativas da mesma entrega no lote: só a última importa (attempts é absoluto)
+        Map<Long, Attempt> latest = new LinkedHashMap<>();
+        for (Attempt a : batch) latest.merge(a.deliveryId(), a, (old, neu) -> neu.attempts() >= old.attempts() ? neu : old);
+        Map<Integer, List<Object[]>> argsByShard = new TreeMap<>();
+        for (Attempt a : latest.values()) {
+            argsByShard.computeIfAbsent(a.shard(), s -> new ArrayList<>()).add(
+                    new Object[]{a.attempts(), a.delivered(), Timestamp.from(a.at()), a.deliveryId(), a.attempts()});
+        }
+        argsByShard.forEach((shard, args) -> ShardContext.run(shard, () -> jdbc.batchUpdate(UPDATE_SQL, args)));
+        return latest.size();
+    }
+}
@@ -0,0 +1,93 @@
+package edu.ucsal.fiadopay.webhook;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bulkhead + circuit breaker de um host de destino.
+ * No máximo maxConcurrent entregas rodam ao mesmo tempo para o host; as demais esperam numa fila
+ * limitada do próprio host. Assim, um lojista lento ocupa no máximo maxConcurrent threads do webhookExecutor.
+ */
+public class HostGate {
+
+    private final String host;
+    private final CircuitBreaker breaker;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Executor executor;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public HostGate(String host, CircuitBreaker breaker, int maxConcurrent, int maxQueued, Executor executor) {
+        this.host = host;
+        this.breaker = breaker;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = maxQueued;
+        this.executor = executor;
+    }
+
+    /**
+     * Executa a entrega já, se houver vaga no host, ou a enfileira.
+     * Quem executa deve chamar {@link #release()} ao terminar.
+     * Retorna false se a fila do host estiver cheia ou se o executor recusar (ex.: shutdown).
+     */
+    public boolean submit(Runnable delivery) {
+        synchronized (this) {
+            if (inFlight >= maxConcurrent) {
+                if (waiting.size() >= maxQueued) return false;
+                waiting.add(delivery);
+                return true;
+            }
+            inFlight++;
+        }
+        try {
+            executor.execute(delivery);
+            return true;
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                inFlight--;
+            }
+            return false;
+        }
+    }
+
+    /** Libera a vaga e, se houver alguém na fila do host, já o despacha. */
+    public void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        try {
+            executor.execute(next);
+        } catch (RejectedExecutionException e) {
+            // Executor parando: a vaga volta e a fila do host é descartada (as entregas seguem
+            // não entregues no banco, para replay)
+            synchronized (this) {
+                inFlight--;
+                waiting.clear();
+            }
+        }
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return waiting.size();
+    }
+}
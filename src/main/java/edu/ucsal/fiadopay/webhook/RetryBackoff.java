@@ -0,0 +1,18 @@
+package edu.ucsal.fiadopay.webhook;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Back-off exponencial com jitter ("equal jitter"): o teto dobra a cada tentativa até max,
+ * e o atraso é sorteado em [teto/2, teto]. Assim, retries de muitos webhooks não sincronizam
+ * contra o mesmo host.
+ */
+public record RetryBackoff(long baseMs, long maxMs) {
+
+    public long delayMs(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long ceiling = Math.min(maxMs, baseMs << shift);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+}
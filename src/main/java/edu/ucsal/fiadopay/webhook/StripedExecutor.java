@@ -0,0 +1,213 @@
+package edu.ucsal.fiadopay.webhook;
+
+import edu.ucsal.fiadopay.fairness.FairQueue;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Executor listrado: tarefas com a mesma chave caem na mesma listra e rodam uma depois da outra,
+ * na ordem de submissão; listras diferentes rodam em paralelo no executor de baixo.
+ * As tarefas são assíncronas: a chave só passa para a próxima tarefa quando a atual chama done
+ * (ex.: webhook entregue ou retries esgotados), então a ordem vale também entre retries.
+ * Cada listra roda uma tarefa por vez, mas uma tarefa que vai só esperar (backoff, breaker aberto)
+ * chama park: a listra fica livre para outras chaves e só a chave da tarefa continua presa até o done.
+ * Assim um merchant fora do ar não segura as listras de todo mundo.
+ * Dentro da listra, a fila é justa entre merchants ({@link FairQueue}): chaves de merchants diferentes
+ * que caem na mesma listra se revezam, e a ordem vale por chave (cada chave é de um merchant só).
+ * A fila de cada merchant na listra é limitada; com ela cheia, submit devolve false.
+ */
+public final class StripedExecutor {
+
+    @FunctionalInterface
+    public interface Task {
+        /** Executa a tarefa; done deve ser chamado exatamente uma vez, em qualquer thread. */
+        void run(Runnable done);
+    }
+
+    @FunctionalInterface
+    public interface ParkingTask {
+        /**
+         * Como {@link Task}; park (opcional, no máximo uma vez, antes do done) libera a listra
+         * enquanto a tarefa espera. A chave continua reservada até o done.
+         */
+        void run(Runnable done, Runnable park);
+    }
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final Executor executor;
+
+    public StripedExecutor(int stripes, int maxQueuedPerMerchant, Executor executor) {
+        this(stripes, maxQueuedPerMerchant, executor, merchantId -> 1);
+    }
+
+    public StripedExecutor(int stripes, int maxQueuedPerMerchant, Executor executor, LongToIntFunction weightOf) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) this.stripes[i] = new Stripe(maxQueuedPerMerchant, weightOf);
+        this.mask = size - 1;
+        this.executor = executor;
+    }
+
+    public boolean submit(Object key, Task task) {
+        return submit(key, 0L, task);
+    }
+
+    public boolean submit(Object key, long merchantId, Task task) {
+        return submit(key, merchantId, (done, park) -> task.run(done));
+    }
+
+    public boolean submit(Object key, long merchantId, ParkingTask task) {
+        return stripes[indexOf(key)].offer(key, merchantId, task);
+    }
+
+    /** Tarefas esperando (sem contar as que estão rodando ou estacionadas), somando todas as listras. */
+    public int queued() {
+        int total = 0;
+        for (Stripe s : stripes) total += s.queued();
+        return total;
+    }
+
+    /** Tarefas esperando por merchant, somando todas as listras. */
+    public Map<Long, Integer> backlog() {
+        Map<Long, Integer> total = new HashMap<>();
+        for (Stripe s : stripes) s.backlog().forEach((id, n) -> total.merge(id, n, Integer::sum));
+        return total;
+    }
+
+    public int stripes() {
+        return stripes.length;
+    }
+
+    private int indexOf(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Tarefas de uma chave, na ordem; active = uma delas está rodando ou estacionada
+    private static final class KeyQueue {
+        final long merchantId;
+        final ArrayDeque<ParkingTask> tasks = new ArrayDeque<>();
+        boolean active;
+        boolean ready;
+
+        KeyQueue(long merchantId) {
+            this.merchantId = merchantId;
+        }
+    }
+
+    private final class Stripe {
+        private final int maxQueuedPerMerchant;
+        // A fila justa guarda chaves prontas (com tarefa e sem nenhuma ativa); as tarefas ficam em keys
+        private final FairQueue<Object> ready;
+        private final Map<Object, KeyQueue> keys = new HashMap<>();
+        private final Map<Long, Integer> waiting = new HashMap<>();
+        private int size;
+        private boolean busy;
+
+        Stripe(int maxQueuedPerMerchant, LongToIntFunction weightOf) {
+            this.maxQueuedPerMerchant = maxQueuedPerMerchant;
+            this.ready = new FairQueue<>(maxQueuedPerMerchant, weightOf);
+        }
+
+        boolean offer(Object key, long merchantId, ParkingTask task) {
+            synchronized (this) {
+                if (waiting.getOrDefault(merchantId, 0) >= maxQueuedPerMerchant) return false;
+                KeyQueue q = keys.computeIfAbsent(key, k -> new KeyQueue(merchantId));
+                q.tasks.add(task);
+                waiting.merge(merchantId, 1, Integer::sum);
+                size++;
+                if (!q.active && !q.ready) {
+                    q.ready = true;
+                    ready.offer(merchantId, key);
+                }
+            }
+            dispatch();
+            return true;
+        }
+
+        synchronized int queued() {
+            return size;
+        }
+
+        synchronized Map<Long, Integer> backlog() {
+            return new HashMap<>(waiting);
+        }
+
+        // Se a listra está livre, começa a tarefa da próxima chave pronta (na vez do merchant)
+        private void dispatch() {
+            Object key;
+            KeyQueue q;
+            ParkingTask task;
+            synchronized (this) {
+                if (busy || (key = ready.poll()) == null) return;
+                q = keys.get(key);
+                q.ready = false;
+                q.active = true;
+                task = q.tasks.poll();
+                waiting.computeIfPresent(q.merchantId, (id, n) -> n == 1 ? null : n - 1);
+                size--;
+                busy = true;
+            }
+            try {
+                executor.execute(() -> runTask(key, q, task));
+            } catch (RejectedExecutionException e) {
+                // executor em shutdown: descarta o que estava na listra
+                synchronized (this) {
+                    ready.clear();
+                    keys.values().forEach(k -> k.tasks.clear());
+                    keys.clear();
+                    waiting.clear();
+                    size = 0;
+                    busy = false;
+                }
+            }
+        }
+
+        private void runTask(Object key, KeyQueue q, ParkingTask task) {
+            AtomicBoolean parked = new AtomicBoolean();
+            AtomicBoolean finished = new AtomicBoolean();
+            Runnable park = () -> {
+                if (!finished.get() && parked.compareAndSet(false, true)) freeStripe();
+            };
+            Runnable done = () -> {
+                if (finished.compareAndSet(false, true)) finish(key, q, parked.compareAndSet(false, true));
+            };
+            try {
+                task.run(done, park);
+            } catch (RuntimeException e) {
+                done.run();
+                throw e;
+            }
+        }
+
+        private void freeStripe() {
+            synchronized (this) {
+                busy = false;
+            }
+            dispatch();
+        }
+
+        // holdsStripe = a tarefa não estacionou, então a listra ainda é dela
+        private void finish(Object key, KeyQueue q, boolean holdsStripe) {
+            synchronized (this) {
+                q.active = false;
+                if (q.tasks.isEmpty()) {
+                    keys.remove(key, q);
+                } else {
+                    // A chave volta para o fim da vez do merchant, como qualquer outra
+                    q.ready = true;
+                    ready.offer(q.merchantId, key);
+                }
+                if (holdsStripe) busy = false;
+            }
+            dispatch();
+        }
+    }
+}
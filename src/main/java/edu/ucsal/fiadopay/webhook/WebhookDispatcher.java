@@ -0,0 +1,457 @@
+package edu.ucsal.fiadopay.webhook;
+
+import com.google.common.util.concurrent.Striped;
+import edu.ucsal.fiadopay.config.FairnessProperties;
+import edu.ucsal.fiadopay.config.WebhookProperties;
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.domain.WebhookPayload;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.jfr.WebhookAttemptEvent;
+import edu.ucsal.fiadopay.jfr.WebhookBuildEvent;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.repo.WebhookPayloadRepository;
+import edu.ucsal.fiadopay.scheduler.HashedTimingWheel;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+/**
+ * Envio de webhooks com retry.
+ * Cada tentativa passa pelo {@link HostGate} do host de destino (bulkhead + circuit breaker).
+ * Os retries esperam numa timing wheel, sem Thread.sleep no webhookExecutor.
+ * Eventos da mesma chave de ordenação (pagamento ou merchant) passam por uma listra do
+ * {@link StripedExecutor}: o próximo só é tentado depois que o anterior termina (entregue ou retries
+ * esgotados), e cada um leva um número de sequência crescente, dado e gravado na publicação. Enquanto espera um
+ * retry a entrega estaciona e a listra atende outras chaves. Na fila de cada listra os merchants
+ * se revezam (deficit round-robin com os pesos de fiadopay.fairness), então um merchant com milhares
+ * de eventos não atrasa os eventos de quem caiu na mesma listra.
+ */
+@Service
+public class WebhookDispatcher {
+
+    private final MerchantRepository merchants;
+    private final WebhookDeliveryRepository deliveries;
+    private final WebhookPayloadRepository payloads;
+    private final TransactionTemplate tx;
+    private final ExecutorService webhookExecutor;
+    private final WebhookPayloadCodec codec;
+    private final WebhookHostRegistry hosts;
+    private final DeliveryAttemptRecorder recorder;
+    private final WebhookProperties props;
+    private final WebhookSequencer sequencer;
+    private final ShardRouter shards;
+    private final String webhookSecret;
+
+    private final RetryBackoff backoff;
+    private final HttpClient client;
+    private final HashedTimingWheel retryTimer;
+    private final StripedExecutor ordered;
+    // Sequência + entrada na listra atômicas por chave (várias transições publicam na mesma chave MERCHANT)
+    private final Striped<Lock> publishLocks = Striped.lock(256);
+    // Eventos que a listra recusou (cheia), por chave e na ordem; só mexido sob o lock de publicação da chave
+    private final Map<String, ArrayDeque<WebhookDelivery>> overflow = new ConcurrentHashMap<>();
+    // Entregas (id) que estão com o dispatcher: na listra, no overflow ou esperando retry no timer
+    private final Set<Long> live = ConcurrentHashMap.newKeySet();
+
+    public WebhookDispatcher(MerchantRepository merchants,
+                             WebhookDeliveryRepository deliveries,
+                             WebhookPayloadRepository payloads,
+                             TransactionTemplate tx,
+                             @Qualifier("webhookExecutor") ExecutorService webhookExecutor,
+                             WebhookPayloadCodec codec,
+                             WebhookHostRegistry hosts,
+                             DeliveryAttemptRecorder recorder,
+                             WebhookProperties props,
+                             WebhookSequencer sequencer,
+                             ShardRouter shards,
+                             FairnessProperties fairness,
+                             @Value("${fiadopay.webhook-secret}") String webhookSecret) {
+        this.merchants = merchants;
+        this.deliveries = deliveries;
+        this.payloads = payloads;
+        this.tx = tx;
+        this.webhookExecutor = webhookExecutor;
+        this.codec = codec;
+        this.hosts = hosts;
+        this.recorder = recorder;
+        this.props = props;
+        this.sequencer = sequencer;
+        this.shards = shards;
+        this.webhookSecret = webhookSecret;
+        this.backoff = new RetryBackoff(props.getBackoff().getBase().toMillis(), props.getBackoff().getMax().toMillis());
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(props.getConnectTimeout())
+                .build();
+        this.retryTimer = new HashedTimingWheel("webhook-timer", props.getTimerTickMs(), 512, webhookExecutor);
+        this.ordered = new StripedExecutor(props.getOrdering().getStripes(),
+                props.getOrdering().getMaxQueuedPerMerchant(), webhookExecutor, fairness::weightOf);
+    }
+
+    // Entra na listra já na chamada, na ordem das transições; o "data" é capturado aqui
+    public void publish(Payment p) {
+        enqueue(p, merchants.findById(p.getMerchantId()).orElse(null), codec.pack(eventData(p)));
+    }
+
+    /** Publicação em lote (ex.: expiração): uma consulta de merchants para o lote todo. */
+    public void publishAll(List<Payment> batch) {
+        Map<Long, Merchant> byId = merchants.findAllById(
+                        batch.stream().map(Payment::getMerchantId).distinct().toList())
+                .stream().collect(Collectors.toMap(Merchant::getId, m -> m));
+        for (Payment p : batch) {
+            enqueue(p, byId.get(p.getMerchantId()), codec.pack(eventData(p)));
+        }
+    }
+
+    /** Eventos esperando nas listras, por merchant. */
+    public Map<Long, Integer> backlog() {
+        return ordered.backlog();
+    }
+
+    @PreDestroy
+    public void stop() {
+        retryTimer.stop();
+    }
+
+    // A sequência sai na publicação, sob o lock da chave, na mesma ordem em que o evento entra na listra.
+    // A linha é gravada (com a sequence) antes de entrar na listra: o que a listra descartar no shutdown
+    // continua no banco como não entregue e volta pela recuperação na partida. Com a listra cheia o evento
+    // espera no overflow da chave, e os seguintes da mesma chave vão atrás dele.
+    private void enqueue(Payment p, Merchant merchant, byte[] data) {
+        if (!hasWebhook(merchant)) return;
+        String key = orderingKey(p);
+        WebhookDelivery d = newDelivery(p, merchant, data);
+        Lock lock = publishLocks.get(key);
+        lock.lock();
+        try {
+            d.setSequence(sequencer.next(key, opensKey(p)));
+            try {
+                save(d);
+            } catch (RuntimeException e) {
+                sequencer.release(key);
+                throw e;
+            }
+            live.add(d.getId());
+            ArrayDeque<WebhookDelivery> waiting = overflow.get(key);
+            if (waiting != null) {
+                park(waiting, d);
+            } else if (!submit(key, d)) {
+                park(overflow.computeIfAbsent(key, k -> new ArrayDeque<>()), d);
+                scheduleOverflow(key, 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // O contador da chave fica preso no sequencer até o evento sair da listra
+    private boolean submit(String key, WebhookDelivery d) {
+        return ordered.submit(key, d.getMerchantId(), (done, park) -> attempt(d, () -> {
+            live.remove(d.getId());
+            sequencer.release(key);
+            done.run();
+        }, park));
+    }
+
+    // Os bytes já estão no banco; enquanto espera vaga o evento não os segura em memória
+    private static void park(ArrayDeque<WebhookDelivery> waiting, WebhookDelivery d) {
+        d.setPayloadData(null);
+        waiting.add(d);
+    }
+
+    private void scheduleOverflow(String key, int round) {
+        try {
+            retryTimer.schedule(() -> drainOverflow(key, round), backoff.delayMs(round), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Timer parado (shutdown): as linhas ficam para a recuperação na partida
+        }
+    }
+
+    // Devolve à listra, na ordem, o que couber; o resto tenta de novo com back-off
+    private void drainOverflow(String key, int round) {
+        Lock lock = publishLocks.get(key);
+        lock.lock();
+        try {
+            ArrayDeque<WebhookDelivery> waiting = overflow.get(key);
+            if (waiting == null) return;
+            while (!waiting.isEmpty() && submit(key, waiting.peek())) waiting.poll();
+            if (waiting.isEmpty()) {
+                overflow.remove(key);
+            } else {
+                scheduleOverflow(key, round + 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Com a chave PAYMENT, a decisão (APPROVED, DECLINED, EXPIRED) é sempre o primeiro evento do pagamento;
+    // só o reembolso vem depois de outro. O sequencer começa a chave em 0 sem consultar o banco.
+    private boolean opensKey(Payment p) {
+        return props.getOrdering().getKey() == WebhookProperties.Ordering.Key.PAYMENT
+                && p.getStatus() != Payment.Status.REFUNDED;
+    }
+
+    // Entregas ficam no shard do merchant, junto dos pagamentos; o payload vai na mesma transação,
+    // com o id da entrega, e continua no objeto em memória para as tentativas
+    private WebhookDelivery save(WebhookDelivery d) {
+        return shards.onMerchant(d.getMerchantId(), () -> tx.execute(status -> {
+            WebhookDelivery saved = deliveries.save(d);
+            payloads.save(new WebhookPayload(saved.getId(), d.getPayloadData()));
+            return saved;
+        }));
+    }
+
+    /**
+     * Reenvia uma entrega já gravada (mesmo eventId e sequence), pela listra da chave e com um novo
+     * orçamento de max-attempts tentativas. onFinished roda no estado final; isDelivered() diz o resultado.
+     * Retorna false se a listra estiver cheia.
+     */
+    public boolean replay(WebhookDelivery d, Runnable onFinished) {
+        live.add(d.getId());
+        boolean accepted = ordered.submit(orderingKey(d.getPaymentId(), d.getMerchantId()), d.getMerchantId(),
+                (done, park) -> {
+                    d.setDelivered(false);
+                    d.setMaxAttempts(d.getAttempts() + props.getMaxAttempts());
+                    attempt(d, () -> {
+                        live.remove(d.getId());
+                        try {
+                            onFinished.run();
+                        } finally {
+                            done.run();
+                        }
+                    }, park);
+                });
+        if (!accepted) live.remove(d.getId());
+        return accepted;
+    }
+
+    /**
+     * Retoma uma entrega gravada numa execução anterior (recuperação na partida), pela listra da chave
+     * e com o que sobrou de max-attempts. Retorna false se a listra estiver cheia.
+     */
+    public boolean resume(WebhookDelivery d) {
+        live.add(d.getId());
+        boolean accepted = ordered.submit(orderingKey(d.getPaymentId(), d.getMerchantId()), d.getMerchantId(),
+                (done, park) -> attempt(d, () -> {
+                    live.remove(d.getId());
+                    done.run();
+                }, park));
+        if (!accepted) live.remove(d.getId());
+        return accepted;
+    }
+
+    /**
+     * Diz se a entrega ainda está com o dispatcher (na fila, tentando ou esperando retry). A linha no banco
+     * aparece como não entregue até o resultado final; quem reenvia pelo banco (replay) deve pulá-la.
+     */
+    public boolean isLive(Long deliveryId) {
+        return live.contains(deliveryId);
+    }
+
+    private String orderingKey(Payment p) {
+        return orderingKey(p.getId(), p.getMerchantId());
+    }
+
+    private String orderingKey(String paymentId, Long merchantId) {
+        return props.getOrdering().getKey() == WebhookProperties.Ordering.Key.MERCHANT
+                ? WebhookSequencer.MERCHANT_PREFIX + merchantId
+                : paymentId;
+    }
+
+    private static boolean hasWebhook(Merchant merchant) {
+        return merchant != null && merchant.getWebhookUrl() != null && !merchant.getWebhookUrl().isBlank();
+    }
+
+    // Só o "data" compacto vai para o banco; JSON e assinatura saem no envio
+    private WebhookDelivery newDelivery(Payment p, Merchant merchant, byte[] data) {
+        return WebhookDelivery.builder()
+                .eventId("evt_" + UUID.randomUUID().toString().substring(0, 8))
+                .eventType("payment.updated")
+                .paymentId(p.getId())
+                .merchantId(p.getMerchantId())
+                .paymentMethod(p.getMethod())
+                .targetUrl(merchant.getWebhookUrl())
+                .format(merchant.getWebhookFormat())
+                .payloadData(data)
+                .attempts(0)
+                .delivered(false)
+                .lastAttemptAt(null)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    // Entra na fila do host; com a fila cheia, conta como tentativa falha (back-pressure).
+    // done libera a chave de ordenação quando a entrega chega ao estado final; park libera a listra
+    // enquanto a entrega só espera o próximo retry.
+    private void attempt(WebhookDelivery d, Runnable done, Runnable park) {
+        HostGate gate;
+        try {
+            gate = hosts.gate(hostOf(d.getTargetUrl()));
+        } catch (IllegalArgumentException e) {
+            recordAttempt(d, false);  // URL inválida: não adianta tentar de novo
+            done.run();
+            return;
+        }
+        if (!gate.submit(() -> deliver(gate, d, done, park))) {
+            afterAttempt(d, false, backoff.delayMs(d.getAttempts() + 1), done, park);
+        }
+    }
+
+    private void deliver(HostGate gate, WebhookDelivery d, Runnable done, Runnable park) {
+        long now = System.currentTimeMillis();
+        CircuitBreaker breaker = gate.breaker();
+        if (!breaker.tryAcquire(now)) {
+            // Circuito aberto: nem tenta o HTTP, então não gasta tentativa; volta quando o breaker liberar a sonda.
+            // A espera é limitada (max-deferral): depois disso a entrega fica como falha, para replay, e libera
+            // a chave; um host que não volta não prende chaves e payloads em memória para sempre
+            gate.release();
+            if (d.getDeferredSince() == null) d.setDeferredSince(Instant.ofEpochMilli(now));
+            long left = props.getBreaker().getMaxDeferral().toMillis() - (now - d.getDeferredSince().toEpochMilli());
+            if (left <= 0) {
+                d.setDeferredSince(null);
+                recordAttempt(d, false);
+                done.run();
+                return;
+            }
+            retryLater(d, Math.min(deferralMs(breaker.retryAfterMs(now)), left), done, park);
+            return;
+        }
+        d.setDeferredSince(null);
+
+        boolean ok = false;
+        int statusCode = 0;
+        Throwable error = null;
+        WebhookAttemptEvent attemptEvent = new WebhookAttemptEvent();
+        attemptEvent.begin();
+        try {
+            WebhookBuildEvent buildEvent = new WebhookBuildEvent();
+            buildEvent.begin();
+            // Assinatura sobre os bytes enviados, seja qual for o formato
+            PayloadFormat format = d.getFormat() == null ? PayloadFormat.JSON : d.getFormat();
+            byte[] body = codec.encode(d, payloadOf(d), format);
+            String signature = hmac(body, webhookSecret);
+            buildEvent.built(d, body.length);
+            buildEvent.commit();
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(d.getTargetUrl()))
+                    .timeout(props.getRequestTimeout())
+                    .header("Content-Type", format.mediaType().toString())
+                    .header("X-Event-Type", d.getEventType())
+                    .header("X-Signature", signature)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            if (d.getSequence() != null) request.header("X-Event-Sequence", d.getSequence().toString());
+            HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            statusCode = response.statusCode();
+            ok = statusCode >= 200 && statusCode < 300;
+        } catch (InterruptedException e) {
+            error = e;
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // timeout, conexão recusada etc.: conta como falha
+            error = e;
+        } finally {
+            gate.release();
+        }
+        attemptEvent.attempt(d, gate.host());
+        attemptEvent.result(statusCode, ok, error);
+        attemptEvent.commit();
+
+        if (ok) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure(System.currentTimeMillis());
+        }
+        afterAttempt(d, ok, backoff.delayMs(d.getAttempts() + 1), done, park);
+    }
+
+    private void afterAttempt(WebhookDelivery d, boolean delivered, long retryDelayMs, Runnable done, Runnable park) {
+        recordAttempt(d, delivered);
+        int maxAttempts = d.getMaxAttempts() != null ? d.getMaxAttempts() : props.getMaxAttempts();
+        if (!delivered && d.getAttempts() < maxAttempts) {
+            retryLater(d, retryDelayMs, done, park);
+        } else {
+            done.run();
+        }
+    }
+
+    // Jitter sobre a espera do breaker: as entregas adiadas do host não acordam todas no mesmo tick
+    private long deferralMs(long retryAfterMs) {
+        long delay = Math.max(retryAfterMs, props.getTimerTickMs());
+        return delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // A entrega estaciona (libera a listra, a chave continua reservada) até o timer disparar
+    private void retryLater(WebhookDelivery d, long delayMs, Runnable done, Runnable park) {
+        park.run();
+        retryTimer.schedule(() -> attempt(d, done, park), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // O estado da entrega vive em memória entre tentativas; o banco recebe o resultado em lote
+    private void recordAttempt(WebhookDelivery d, boolean delivered) {
+        d.setAttempts(d.getAttempts() + 1);
+        d.setLastAttemptAt(Instant.now());
+        d.setDelivered(delivered);
+        recorder.record(shards.shardOfMerchant(d.getMerchantId()), d.getId(), d.getAttempts(), delivered,
+                d.getLastAttemptAt());
+    }
+
+    static String hostOf(String url) {
+        URI uri = URI.create(url);
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("URL de webhook sem host: " + url);
+        }
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+        return uri.getHost().toLowerCase() + ":" + port;
+    }
+
+    // Entregas carregadas do banco (ex.: replay) vêm sem os bytes; busca sob demanda
+    private byte[] payloadOf(WebhookDelivery d) {
+        if (d.getPayloadData() == null) {
+            d.setPayloadData(shards.onMerchant(d.getMerchantId(), () -> payloads.findDataById(d.getId())));
+        }
+        return d.getPayloadData();
+    }
+
+    private static Map<String, Object> eventData(Payment p) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("status", p.getStatus().name());
+        data.put("occurredAt", Instant.now().toString());
+        return data;
+    }
+
+    private static String hmac(byte[] payload, String secret) {
+        try {
+            var mac = javax.crypto.Mac.getInstance("HmacSHA256");
+            mac.init(new javax.crypto.spec.SecretKeySpec(secret.getBytes(), "HmacSHA256"));
+            return Base64.getEncoder().encodeToString(mac.doFinal(payload));
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
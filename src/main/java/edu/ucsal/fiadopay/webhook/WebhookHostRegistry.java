@@ -0,0 +1,63 @@
+package edu.ucsal.fiadopay.webhook;
+
+import edu.ucsal.fiadopay.config.WebhookProperties;
+import edu.ucsal.fiadopay.dto.response.WebhookHostStatus;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/** Um {@link HostGate} por host de destino, criado sob demanda. */
+@Component
+public class WebhookHostRegistry {
+
+    private final Map<String, HostGate> gates = new ConcurrentHashMap<>();
+    private final WebhookProperties props;
+    private final ExecutorService webhookExecutor;
+
+    public WebhookHostRegistry(WebhookProperties props,
+                               @Qualifier("webhookExecutor") ExecutorService webhookExecutor) {
+        this.props = props;
+        this.webhookExecutor = webhookExecutor;
+    }
+
+    public HostGate gate(String host) {
+        return gates.computeIfAbsent(host, h -> new HostGate(h,
+                new CircuitBreaker(props.getBreaker().getFailureThreshold(),
+                        props.getBreaker().getOpenDuration().toMillis()),
+                props.getBulkhead().getMaxConcurrentPerHost(),
+                props.getBulkhead().getMaxQueuedPerHost(),
+                webhookExecutor));
+    }
+
+    public List<WebhookHostStatus> snapshot() {
+        return gates.values().stream()
+                .map(WebhookHostRegistry::toStatus)
+                .sorted(Comparator.comparing(WebhookHostStatus::host))
+                .toList();
+    }
+
+    public Optional<WebhookHostStatus> reset(String host) {
+        HostGate gate = gates.get(host);
+        if (gate == null) return Optional.empty();
+        gate.breaker().reset();
+        return Optional.of(toStatus(gate));
+    }
+
+    private static WebhookHostStatus toStatus(HostGate g) {
+        long openedAt = g.breaker().openedAt();
+        return new WebhookHostStatus(
+                g.host(),
+                g.breaker().state().name(),
+                g.breaker().consecutiveFailures(),
+                openedAt == 0 ? null : Instant.ofEpochMilli(openedAt),
+                g.inFlight(),
+                g.queued());
+    }
+}
@@ -0,0 +1,125 @@
+package edu.ucsal.fiadopay.webhook;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.format.PayloadMappers;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Formato compacto do payload de webhook guardado em WebhookDelivery.payloadData.
+ * O primeiro byte diz o formato: 1 = Smile puro; 2 = Smile comprimido com Deflate (só acima de
+ * COMPRESS_THRESHOLD, porque em eventos pequenos o cabeçalho do Deflate custa mais do que economiza).
+ * Campos que já são colunas (id, tipo, paymentId) não entram nos bytes; o envelope é montado no envio,
+ * no formato escolhido pelo merchant (JSON, CBOR ou Smile).
+ */
+@Component
+public class WebhookPayloadCodec {
+
+    private static final byte FORMAT_SMILE = 1;
+    private static final byte FORMAT_SMILE_DEFLATE = 2;
+    private static final int COMPRESS_THRESHOLD = 256;
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP = new TypeReference<>() {};
+
+    private final PayloadMappers mappers;
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+    public WebhookPayloadCodec(PayloadMappers mappers) {
+        this.mappers = mappers;
+    }
+
+    public byte[] pack(Map<String, Object> data) {
+        try {
+            byte[] encoded = smile.writeValueAsBytes(data);
+            if (encoded.length <= COMPRESS_THRESHOLD) {
+                return prefixed(FORMAT_SMILE, encoded, encoded.length);
+            }
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(encoded);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length / 2 + 16);
+                out.write(FORMAT_SMILE_DEFLATE);
+                byte[] buf = new byte[512];
+                while (!deflater.finished()) {
+                    out.write(buf, 0, deflater.deflate(buf));
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Map<String, Object> unpack(byte[] packed) {
+        try {
+            byte[] body = Arrays.copyOfRange(packed, 1, packed.length);
+            if (packed[0] == FORMAT_SMILE_DEFLATE) body = inflate(body);
+            return smile.readValue(body, MAP);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Envelope do evento ({id, type, sequence, data}); data recebe de volta o paymentId. */
+    public Map<String, Object> envelope(WebhookDelivery d, byte[] packed) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("paymentId", d.getPaymentId());
+        data.putAll(unpack(packed));
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", d.getEventId());
+        event.put("type", d.getEventType());
+        if (d.getSequence() != null) event.put("sequence", d.getSequence());
+        event.put("data", data);
+        return event;
+    }
+
+    /** Corpo do envio: os bytes assinados são exatamente estes. */
+    public byte[] encode(WebhookDelivery d, byte[] packed, PayloadFormat format) {
+        try {
+            return mappers.of(format).writeValueAsBytes(envelope(d, packed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] prefixed(byte format, byte[] body, int len) {
+        byte[] out = new byte[len + 1];
+        out[0] = format;
+        System.arraycopy(body, 0, out, 1, len);
+        return out;
+    }
+
+    private static byte[] inflate(byte[] body) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 3);
+            byte[] buf = new byte[512];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package edu.ucsal.fiadopay.webhook;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.RateLimiter;
+import edu.ucsal.fiadopay.config.WebhookProperties;
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.dto.request.ReplayRequest;
+import edu.ucsal.fiadopay.dto.response.ReplayStatus;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replay em massa de webhooks de um merchant numa janela de tempo (ex.: depois de uma queda do lojista).
+ * As entregas são lidas em páginas por chave (createdAt, id) e reenviadas pelo {@link WebhookDispatcher}
+ * com o mesmo eventId e sequence, para o lojista deduplicar. O ritmo é limitado por um RateLimiter e
+ * no máximo max-in-flight entregas ficam em andamento, então a memória é a mesma para 10 ou 10 milhões.
+ * Cada replay tem progresso consultável e pode ser cancelado; o que já saiu termina normalmente.
+ * Se o replay falhar, o motivo vai para o log e para o campo error do status.
+ * Entregas que o dispatcher ainda tem em memória (ex.: esperando retry) são puladas e contadas em skipped:
+ * reenviá-las mandaria o evento duas vezes.
+ */
+@Slf4j
+@Service
+public class WebhookReplayService {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final WebhookDeliveryRepository deliveries;
+    private final MerchantRepository merchants;
+    private final WebhookDispatcher dispatcher;
+    private final ShardRouter shards;
+    private final WebhookProperties.Replay props;
+    private final ExecutorService replayExecutor;
+    // Replays recentes para consulta; os em andamento continuam rodando mesmo se saírem daqui
+    private final Cache<String, Job> jobs = CacheBuilder.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+
+    public WebhookReplayService(WebhookDeliveryRepository deliveries,
+                                MerchantRepository merchants,
+                                WebhookDispatcher dispatcher,
+                                ShardRouter shards,
+                                WebhookProperties props) {
+        this.deliveries = deliveries;
+        this.merchants = merchants;
+        this.dispatcher = dispatcher;
+        this.shards = shards;
+        this.props = props.getReplay();
+        this.replayExecutor = Executors.newFixedThreadPool(this.props.getMaxConcurrent(), r -> {
+            Thread t = new Thread(r, "webhook-replay");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public ReplayStatus start(ReplayRequest req) {
+        if (!req.from().isBefore(req.to())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from deve ser anterior a to");
+        }
+        Merchant merchant = merchants.findById(req.merchantId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Merchant não encontrado"));
+        if (merchant.getWebhookUrl() == null || merchant.getWebhookUrl().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Merchant sem webhookUrl");
+        }
+
+        double rate = req.maxPerSecond() == null ? props.getMaxPerSecond()
+                : Math.min(req.maxPerSecond(), props.getMaxPerSecond());
+        Job job = new Job("rpl_" + UUID.randomUUID().toString().substring(0, 8), req,
+                merchant.getWebhookUrl(), merchant.getWebhookFormat(), rate);
+        jobs.put(job.id, job);
+        replayExecutor.execute(() -> run(job));
+        return job.snapshot();
+    }
+
+    public Optional<ReplayStatus> status(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id)).map(Job::snapshot);
+    }
+
+    public List<ReplayStatus> list() {
+        return jobs.asMap().values().stream()
+                .sorted(Comparator.comparing((Job j) -> j.createdAt).reversed())
+                .map(Job::snapshot)
+                .toList();
+    }
+
+    public Optional<ReplayStatus> cancel(String id) {
+        Job job = jobs.getIfPresent(id);
+        if (job == null) return Optional.empty();
+        job.cancelled = true;
+        if (job.status.compareAndSet(Status.QUEUED, Status.CANCELLED)) job.finishedAt = Instant.now();
+        return Optional.of(job.snapshot());
+    }
+
+    /** Chamado pela drenagem do shutdown: cancela tudo e não lê mais páginas. */
+    public void stop() {
+        jobs.asMap().values().forEach(j -> j.cancelled = true);
+        replayExecutor.shutdownNow();
+    }
+
+    private void run(Job job) {
+        if (!job.status.compareAndSet(Status.QUEUED, Status.RUNNING)) return;
+        job.startedAt = Instant.now();
+        RateLimiter limiter = RateLimiter.create(job.maxPerSecond);
+        Semaphore inFlight = new Semaphore(props.getMaxInFlight());
+        ReplayRequest req = job.request;
+        Boolean delivered = switch (req.state() == null ? ReplayRequest.DeliveryState.UNDELIVERED : req.state()) {
+            case UNDELIVERED -> false;
+            case DELIVERED -> true;
+            case ALL -> null;
+        };
+        String eventType = req.eventType() == null ? "payment.updated" : req.eventType();
+
+        try {
+            // createdAt >= from: começa em (from, -inf)
+            Instant afterCreatedAt = req.from();
+            long afterId = Long.MIN_VALUE;
+            while (!job.cancelled) {
+                Instant fromCreatedAt = afterCreatedAt;
+                long fromId = afterId;
+                List<WebhookDelivery> page = shards.onMerchant(req.merchantId(), () -> deliveries.findForReplay(
+                        req.merchantId(), eventType, delivered, req.to(), fromCreatedAt, fromId,
+                        PageRequest.of(0, props.getPageSize())));
+                for (WebhookDelivery d : page) {
+                    if (job.cancelled) break;
+                    job.matched.incrementAndGet();
+                    if (dispatcher.isLive(d.getId())) {
+                        job.skipped.incrementAndGet();
+                        continue;
+                    }
+                    limiter.acquire();
+                    if (!acquire(inFlight, job)) break;
+                    d.setTargetUrl(job.targetUrl);  // URL atual do merchant (pode ter mudado na queda)
+                    d.setFormat(job.format);         // idem para a codificação
+                    enqueue(job, d, inFlight);
+                }
+                if (page.size() < props.getPageSize()) break;
+                WebhookDelivery last = page.get(page.size() - 1);
+                afterCreatedAt = last.getCreatedAt();
+                afterId = last.getId();
+            }
+            // Espera as entregas em andamento para o progresso final bater
+            if (acquireAll(inFlight, props.getMaxInFlight())) inFlight.release(props.getMaxInFlight());
+            job.status.set(job.cancelled ? Status.CANCELLED : Status.COMPLETED);
+        } catch (RuntimeException e) {
+            log.warn("Replay {} do merchant {} falhou depois de {} entregas", job.id, req.merchantId(), job.matched.get(), e);
+            job.error = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+            job.status.set(Status.FAILED);
+        } finally {
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    // Listra cheia: espera e tenta de novo (back-pressure), sem perder a entrega
+    private void enqueue(Job job, WebhookDelivery d, Semaphore inFlight) {
+        Runnable onFinished = () -> {
+            (d.isDelivered() ? job.delivered : job.failed).incrementAndGet();
+            inFlight.release();
+        };
+        while (!dispatcher.replay(d, onFinished)) {
+            if (job.cancelled) {
+                inFlight.release();
+                return;
+            }
+            sleep(50);
+        }
+        job.enqueued.incrementAndGet();
+    }
+
+    private static boolean acquire(Semaphore inFlight, Job job) {
+        try {
+            while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                if (job.cancelled) return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean acquireAll(Semaphore inFlight, int permits) {
+        try {
+            return inFlight.tryAcquire(permits, 10, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Job {
+        final String id;
+        final ReplayRequest request;
+        final String targetUrl;
+        final PayloadFormat format;
+        final double maxPerSecond;
+        final Instant createdAt = Instant.now();
+        final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+        final AtomicLong matched = new AtomicLong();
+        final AtomicLong enqueued = new AtomicLong();
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        volatile boolean cancelled;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Job(String id, ReplayRequest request, String targetUrl, PayloadFormat format, double maxPerSecond) {
+            this.id = id;
+            this.request = request;
+            this.targetUrl = targetUrl;
+            this.format = format;
+            this.maxPerSecond = maxPerSecond;
+        }
+
+        ReplayStatus snapshot() {
+            ReplayRequest.DeliveryState state = request.state() == null
+                    ? ReplayRequest.DeliveryState.UNDELIVERED : request.state();
+            return new ReplayStatus(id, request.merchantId(), request.from(), request.to(), state.name(),
+                    maxPerSecond, status.get().name(), matched.get(), enqueued.get(), delivered.get(),
+                    failed.get(), skipped.get(), startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.ucsal.fiadopay.webhook;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Número de sequência dos eventos por chave de ordenação ("pay_xxx" ou "merchant:N").
+ * Chamado na publicação, sob o lock da chave e junto da entrada na listra, portanto na mesma ordem da entrega.
+ * Cada next deixa o contador da chave preso em memória até o release correspondente (evento fora da listra):
+ * uma chave com eventos em andamento nunca é despejada. Sem nada em andamento, o contador vai para um cache
+ * limitado que expira sem uso; fora dele, parte do maior sequence gravado para a chave (sobrevive a restarts
+ * com banco persistente), ou de 0 sem consultar o banco quando quem chama sabe que a chave é nova.
+ */
+@Component
+public class WebhookSequencer {
+
+    static final String MERCHANT_PREFIX = "merchant:";
+
+    private final WebhookDeliveryRepository deliveries;
+    private final ShardRouter shards;
+    // Chaves com eventos em andamento; pending = next sem release
+    private final Map<String, Counter> active = new ConcurrentHashMap<>();
+    private final Cache<String, Long> idle;
+
+    @Autowired
+    public WebhookSequencer(WebhookDeliveryRepository deliveries, ShardRouter shards) {
+        this(deliveries, shards, 100_000, Duration.ofHours(1));
+    }
+
+    WebhookSequencer(WebhookDeliveryRepository deliveries, ShardRouter shards, long maxIdle, Duration idleTtl) {
+        this.deliveries = deliveries;
+        this.shards = shards;
+        this.idle = CacheBuilder.newBuilder()
+                .maximumSize(maxIdle)
+                .expireAfterAccess(idleTtl)
+                .build();
+    }
+
+    /**
+     * Próximo número da chave. fresh = a chave ainda não tem evento (ex.: a decisão de um pagamento),
+     * então começa em 0 sem ir ao banco. Cada chamada pede um {@link #release} quando o evento sair da listra.
+     */
+    public long next(String key, boolean fresh) {
+        // A consulta fica fora do compute, que segura a entrada do mapa
+        Long loaded = active.containsKey(key) || idle.getIfPresent(key) != null ? null : seed(key, fresh);
+        long[] sequence = new long[1];
+        active.compute(key, (k, c) -> {
+            if (c == null) {
+                Long last = idle.asMap().remove(k);
+                c = new Counter(last != null ? last : loaded != null ? loaded : seed(k, fresh));
+            }
+            c.pending++;
+            sequence[0] = ++c.value;
+            return c;
+        });
+        return sequence[0];
+    }
+
+    /** O evento de um next terminou (entregue, falhou de vez ou ficou para replay). */
+    public void release(String key) {
+        active.computeIfPresent(key, (k, c) -> {
+            if (--c.pending > 0) return c;
+            idle.put(k, c.value);
+            return null;
+        });
+    }
+
+    private long seed(String key, boolean fresh) {
+        if (fresh) return 0;
+        Long max;
+        if (key.startsWith(MERCHANT_PREFIX)) {
+            long merchantId = Long.parseLong(key.substring(MERCHANT_PREFIX.length()));
+            max = shards.onMerchant(merchantId, () -> deliveries.maxSequenceByMerchantId(merchantId));
+        } else {
+            max = shards.onPayment(key, () -> deliveries.maxSequenceByPaymentId(key));
+        }
+        return max == null ? 0 : max;
+    }
+
+    // Alterado só dentro do compute da chave
+    private static final class Counter {
+        long value;
+        int pending;
+
+        Counter(long value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.ucsal.fiadopay.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.config.RetentionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ArchiveStore - Testes Unitários")
+class ArchiveStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private ArchiveStore store;
+
+    @BeforeEach
+    void setUp() {
+        RetentionProperties props = new RetentionProperties();
+        props.setArchiveDir(dir.toString());
+        store = new ArchiveStore(props, new ObjectMapper());
+    }
+
+    private static List<Map<String, Object>> records(int from, int to, String status) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> Map.<String, Object>of("id", "pay_" + i, "status", status))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("Deve achar cada registro pelo índice dividido em baldes")
+    void shouldFindByBucketedIndex() {
+        store.write(ArchiveStore.Kind.PAYMENTS, LocalDate.of(2025, 1, 1), records(0, 200, "APPROVED"), r -> (String) r.get("id"));
+        store.write(ArchiveStore.Kind.PAYMENTS, LocalDate.of(2025, 1, 2), records(200, 400, "DECLINED"), r -> (String) r.get("id"));
+
+        assertEquals("APPROVED", store.find(ArchiveStore.Kind.PAYMENTS, "pay_17").orElseThrow().path("status").asText());
+        assertEquals("DECLINED", store.find(ArchiveStore.Kind.PAYMENTS, "pay_399").orElseThrow().path("status").asText());
+        assertTrue(store.find(ArchiveStore.Kind.PAYMENTS, "pay_400").isEmpty());
+        assertTrue(store.find(ArchiveStore.Kind.DELIVERIES, "pay_17").isEmpty());
+        assertFalse(Files.exists(dir.resolve("payments").resolve("index.tsv")));
+    }
+
+    @Test
+    @DisplayName("Registro regravado deve vir da gravação mais nova")
+    void shouldPreferLatestCopy() {
+        store.write(ArchiveStore.Kind.PAYMENTS, LocalDate.of(2025, 1, 1), records(0, 1, "APPROVED"), r -> (String) r.get("id"));
+        store.write(ArchiveStore.Kind.PAYMENTS, LocalDate.of(2025, 1, 1), records(0, 1, "REFUNDED"), r -> (String) r.get("id"));
+
+        assertEquals("REFUNDED", store.find(ArchiveStore.Kind.PAYMENTS, "pay_0").orElseThrow().path("status").asText());
+    }
+}
@@ -0,0 +1,153 @@
+package edu.ucsal.fiadopay.archive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.domain.WebhookPayload;
+import edu.ucsal.fiadopay.repo.PaymentRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.repo.WebhookPayloadRepository;
+import edu.ucsal.fiadopay.webhook.WebhookPayloadCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:retention_test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "fiadopay.retention.enabled=false",
+        "fiadopay.retention.batch-size=3",
+        "fiadopay.retention.archive-dir=target/test-archive/${random.uuid}",
+        "fiadopay.recovery.enabled=false",
+        "fiadopay.expiry.enabled=false"
+})
+@DisplayName("RetentionService - Testes de Integração")
+class RetentionServiceTest {
+
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(120));
+
+    @Autowired
+    private RetentionService retention;
+
+    @Autowired
+    private ArchiveStore archive;
+
+    @MockitoSpyBean
+    private PaymentRepository payments;
+
+    @Autowired
+    private WebhookDeliveryRepository deliveries;
+
+    @Autowired
+    private WebhookPayloadRepository payloads;
+
+    @Autowired
+    private WebhookPayloadCodec codec;
+
+    @BeforeEach
+    void clean() {
+        payments.deleteAll();
+        deliveries.deleteAll();
+        payloads.deleteAll();
+    }
+
+    private Payment payment(String id, Payment.Status status, Instant updatedAt) {
+        return payments.save(Payment.builder()
+                .id(id).merchantId(1L).method("PIX").amount(BigDecimal.TEN).currency("BRL").installments(1)
+                .totalWithInterest(BigDecimal.TEN).status(status).createdAt(updatedAt).updatedAt(updatedAt)
+                .build());
+    }
+
+    @Test
+    @DisplayName("Deve arquivar e apagar só os pagamentos finalizados fora da política")
+    void shouldArchiveSettledPayments() {
+        for (int i = 0; i < 7; i++) payment("pay_old" + i, Payment.Status.APPROVED, OLD);
+        payment("pay_pending", Payment.Status.PENDING, OLD);
+        payment("pay_recent", Payment.Status.APPROVED, Instant.now());
+
+        assertEquals(7, retention.archivePayments());
+
+        assertEquals(2, payments.count());
+        assertTrue(payments.existsById("pay_pending"));
+        assertTrue(payments.existsById("pay_recent"));
+        for (int i = 0; i < 7; i++) {
+            assertEquals("APPROVED", archive.find(ArchiveStore.Kind.PAYMENTS, "pay_old" + i).orElseThrow().path("status").asText());
+        }
+        assertTrue(archive.find(ArchiveStore.Kind.PAYMENTS, "pay_recent").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Reembolso entre a leitura e o DELETE deve manter a linha e não arquivar a cópia velha")
+    @SuppressWarnings("unchecked")
+    void shouldKeepPaymentRefundedAfterRead() {
+        payment("pay_a", Payment.Status.APPROVED, OLD);
+        payment("pay_b", Payment.Status.APPROVED, OLD);
+
+        // O spy de um proxy de repositório não tem "método real": a resposta padrão delega ao repositório
+        Answer<?> real = mockingDetails(payments).getMockCreationSettings().getDefaultAnswer();
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(inv -> {
+            Object batch = real.answer(inv);
+            // Outra conexão reembolsa pay_a depois da leitura do lote
+            if (raced.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(() -> payments.transitionStatus(
+                        "pay_a", Payment.Status.APPROVED, Payment.Status.REFUNDED, Instant.now())).join();
+            }
+            return batch;
+        }).when(payments).findByStatusInAndUpdatedAtBeforeOrderByUpdatedAt(any(Collection.class), any(Instant.class), any(Pageable.class));
+
+        assertEquals(1, retention.archivePayments());
+
+        assertEquals(Payment.Status.REFUNDED, payments.findById("pay_a").orElseThrow().getStatus());
+        assertTrue(archive.find(ArchiveStore.Kind.PAYMENTS, "pay_a").isEmpty());
+        assertFalse(payments.existsById("pay_b"));
+        assertTrue(archive.find(ArchiveStore.Kind.PAYMENTS, "pay_b").isPresent());
+    }
+
+    @Test
+    @DisplayName("Deve arquivar só entregas concluídas fora da política, com o payload da tabela à parte decodificado")
+    void shouldArchiveDeliveredWebhooks() {
+        List<WebhookDelivery> rows = deliveries.saveAll(List.of(
+                WebhookDelivery.builder().eventId("evt_1").eventType("payment.updated").paymentId("pay_1").merchantId(1L)
+                        .targetUrl("http://localhost/h").attempts(1).delivered(true).lastAttemptAt(OLD).createdAt(OLD).build(),
+                WebhookDelivery.builder().eventId("evt_2").eventType("payment.updated").paymentId("pay_2").merchantId(1L)
+                        .targetUrl("http://localhost/h").attempts(3).delivered(false).lastAttemptAt(OLD).createdAt(OLD).build()));
+        rows.forEach(d -> payloads.save(new WebhookPayload(d.getId(), codec.pack(Map.of("status", "APPROVED")))));
+
+        // A leitura da entrega não traz os bytes do evento
+        assertNull(deliveries.findById(rows.get(0).getId()).orElseThrow().getPayloadData());
+
+        assertEquals(1, retention.archiveDeliveries());
+
+        assertFalse(deliveries.existsById(rows.get(0).getId()));
+        assertFalse(payloads.existsById(rows.get(0).getId()));
+        assertTrue(deliveries.existsById(rows.get(1).getId()));
+        assertTrue(payloads.existsById(rows.get(1).getId()));
+        JsonNode archived = archive.find(ArchiveStore.Kind.DELIVERIES, String.valueOf(rows.get(0).getId())).orElseThrow();
+        assertEquals("APPROVED", archived.path("data").path("status").asText());
+        assertEquals("evt_1", archived.path("eventId").asText());
+        // Nem os bytes em Smile nem os campos só de memória da entidade
+        assertFalse(archived.has("payloadData"));
+        assertFalse(archived.has("maxAttempts"));
+        assertFalse(archived.has("deferredSince"));
+    }
+}
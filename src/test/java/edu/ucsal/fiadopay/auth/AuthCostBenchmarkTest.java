@@ -0,0 +1,106 @@
+package edu.ucsal.fiadopay.auth;
+
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Custo de autenticação por requisição: token FAKE-<id> + merchants.findById (layout anterior)
+ * vs. token assinado verificado só com HMAC e a lista de revogação em memória.
+ * Rodar com: mvn test -Pbenchmark -Dbench.auth.ops=200000 -Dbench.auth.threads=8
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@DisplayName("Benchmark - Custo de autenticação por requisição")
+class AuthCostBenchmarkTest {
+
+    private static final int OPS = Integer.getInteger("bench.auth.ops", 100_000);
+    private static final int THREADS = Integer.getInteger("bench.auth.threads", 8);
+    private static final int MERCHANTS = 100;
+
+    @Autowired
+    private MerchantRepository merchants;
+
+    @Autowired
+    private TokenService tokens;
+
+    @Test
+    @DisplayName("FAKE + findById vs. token assinado")
+    void compareAuthCost() throws Exception {
+        List<String> legacyHeaders = new ArrayList<>();
+        List<String> signedHeaders = new ArrayList<>();
+        for (int i = 0; i < MERCHANTS; i++) {
+            Merchant m = merchants.save(Merchant.builder()
+                    .name("bench-auth-" + UUID.randomUUID())
+                    .clientId(UUID.randomUUID().toString())
+                    .clientSecret("s")
+                    .status(Merchant.Status.ACTIVE)
+                    .build());
+            legacyHeaders.add("Bearer FAKE-" + m.getId());
+            signedHeaders.add("Bearer " + tokens.issue(m).access_token());
+        }
+
+        // Aquecimento dos dois caminhos
+        run(legacyHeaders, this::legacyAuth, 1, OPS / 10);
+        run(signedHeaders, h -> tokens.verify(h).merchantId(), 1, OPS / 10);
+
+        System.out.printf("%n[bench] auth por requisição, %,d verificações%n", OPS);
+        for (int threads : new int[]{1, THREADS}) {
+            double legacy = run(legacyHeaders, this::legacyAuth, threads, OPS);
+            double signed = run(signedHeaders, h -> tokens.verify(h).merchantId(), threads, OPS);
+            System.out.printf("[bench]   %d thread(s): FAKE+findById %,8.0f ns/op | token assinado %,8.0f ns/op (%.1fx)%n",
+                    threads, legacy, signed, legacy / signed);
+            assertTrue(signed < legacy);
+        }
+    }
+
+    // Caminho anterior: parse do id + consulta ao banco + checagem de status
+    private long legacyAuth(String auth) {
+        long id = Long.parseLong(auth.substring("Bearer FAKE-".length()));
+        return merchants.findById(id)
+                .filter(m -> m.getStatus() == Merchant.Status.ACTIVE)
+                .orElseThrow()
+                .getId();
+    }
+
+    /** Tempo médio por verificação (ns), com as operações divididas entre as threads. */
+    private static double run(List<String> headers, ToLongFunction<String> auth, int threads, int ops)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int perThread = ops / threads;
+            List<Future<Long>> results = new ArrayList<>();
+            long t0 = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                results.add(pool.submit(() -> {
+                    long sink = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        sink += auth.applyAsLong(headers.get((i + offset) % headers.size()));
+                    }
+                    return sink;
+                }));
+            }
+            for (Future<Long> f : results) assertTrue(f.get() > 0);
+            long elapsed = System.nanoTime() - t0;
+            // Custo por requisição visto por uma thread (latência), não vazão agregada
+            return (double) elapsed * threads / ((long) perThread * threads);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
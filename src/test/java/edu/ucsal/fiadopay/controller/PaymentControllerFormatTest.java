@@ -0,0 +1,117 @@
+package edu.ucsal.fiadopay.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.ucsal.fiadopay.auth.TokenService;
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.dto.request.PaymentRequest;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.format.PayloadMappers;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "fiadopay.recovery.enabled=false",
+        "fiadopay.expiry.enabled=false",
+        "fiadopay.retention.enabled=false"
+})
+@AutoConfigureMockMvc
+@DisplayName("PaymentController - Testes de Formato (JSON, CBOR, Smile)")
+class PaymentControllerFormatTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PayloadMappers mappers;
+
+    @Autowired
+    private MerchantRepository merchants;
+
+    @Autowired
+    private TokenService tokens;
+
+    private String bearer;
+
+    @BeforeEach
+    void setUp() {
+        Merchant m = merchants.save(Merchant.builder()
+                .name("fmt-" + UUID.randomUUID())
+                .clientId(UUID.randomUUID().toString())
+                .clientSecret(UUID.randomUUID().toString())
+                .webhookFormat(PayloadFormat.JSON)
+                .status(Merchant.Status.ACTIVE)
+                .build());
+        bearer = "Bearer " + tokens.issue(m).access_token();
+    }
+
+    private JsonNode create(PayloadFormat format) throws Exception {
+        byte[] body = mappers.of(format).writeValueAsBytes(
+                new PaymentRequest("CARD", "BRL", new BigDecimal("100.00"), 3, "pedido-" + format));
+        MvcResult result = mvc.perform(post("/fiadopay/gateway/payments")
+                        .header(HttpHeaders.AUTHORIZATION, bearer)
+                        .contentType(format.mediaType())
+                        .accept(format.mediaType())
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentTypeCompatibleWith(format.mediaType()))
+                .andReturn();
+        return mappers.of(format).readTree(result.getResponse().getContentAsByteArray());
+    }
+
+    @ParameterizedTest
+    @EnumSource(PayloadFormat.class)
+    @DisplayName("Corpo do POST em cada formato deve passar pelos conversores registrados e voltar no mesmo formato")
+    void shouldRoundTripRequestBody(PayloadFormat format) throws Exception {
+        JsonNode created = create(format);
+
+        assertTrue(created.path("id").asText().startsWith("pay_"));
+        assertEquals("CARD", created.path("method").asText());
+        assertEquals(0, new BigDecimal("100.00").compareTo(created.path("amount").decimalValue()));
+        assertEquals(3, created.path("installments").asInt());
+        assertEquals(0, new BigDecimal("103.03").compareTo(created.path("total").decimalValue()));
+    }
+
+    @Test
+    @DisplayName("GET deve responder no formato do Accept, com Vary: Accept")
+    void shouldServeNegotiatedFormat() throws Exception {
+        String id = create(PayloadFormat.JSON).path("id").asText();
+
+        MvcResult result = mvc.perform(get("/fiadopay/gateway/payments/{id}", id)
+                        .accept(PayloadFormat.SMILE.mediaType()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(PayloadFormat.SMILE.mediaType()))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn();
+        JsonNode p = mappers.of(PayloadFormat.SMILE).readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(id, p.path("id").asText());
+    }
+
+    @Test
+    @DisplayName("GET sem formato compatível deve responder 406 com Vary: Accept")
+    void shouldRejectUnsupportedAccept() throws Exception {
+        String id = create(PayloadFormat.JSON).path("id").asText();
+
+        mvc.perform(get("/fiadopay/gateway/payments/{id}", id).header(HttpHeaders.ACCEPT, "text/html"))
+                .andExpect(status().isNotAcceptable())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+}
@@ -0,0 +1,173 @@
+package edu.ucsal.fiadopay.expiry;
+
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import edu.ucsal.fiadopay.repo.PaymentRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:expiry_test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "fiadopay.expiry.enabled=false",
+        "fiadopay.expiry.batch-size=2",
+        "fiadopay.expiry.max-batches-per-run=2",
+        "fiadopay.expiry.ttl.PIX=PT30M",
+        "fiadopay.expiry.ttl.BOLETO=P3D",
+        "fiadopay.retention.enabled=false",
+        "fiadopay.retention.archive-dir=target/test-archive/${random.uuid}",
+        "fiadopay.recovery.enabled=false"
+})
+@DisplayName("PaymentExpirySweeper - Testes de Integração")
+class PaymentExpirySweeperTest {
+
+    private static final Instant OVERDUE_PIX = Instant.now().minus(Duration.ofHours(1));
+    private static final Instant OVERDUE_BOLETO = Instant.now().minus(Duration.ofDays(4));
+    private static final Instant RECENT = Instant.now().minus(Duration.ofMinutes(5));
+
+    @Autowired
+    private PaymentExpirySweeper sweeper;
+
+    @Autowired
+    private PaymentRepository payments;
+
+    @Autowired
+    private WebhookDeliveryRepository deliveries;
+
+    @Autowired
+    private MerchantRepository merchants;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    private Long merchantId;
+
+    @BeforeEach
+    void clean() {
+        payments.deleteAll();
+        deliveries.deleteAll();
+        // Sem ninguém na porta 1: as entregas ficam gravadas e só falham no envio
+        merchantId = merchants.save(Merchant.builder().name("m-" + UUID.randomUUID())
+                .clientId(UUID.randomUUID().toString()).clientSecret("s")
+                .webhookUrl("http://localhost:1/hook").status(Merchant.Status.ACTIVE).build()).getId();
+    }
+
+    private void payment(String id, String method, Payment.Status status, Instant createdAt) {
+        payments.save(Payment.builder()
+                .id(id).merchantId(merchantId).method(method).amount(BigDecimal.TEN).currency("BRL").installments(1)
+                .totalWithInterest(BigDecimal.TEN).status(status).createdAt(createdAt).updatedAt(createdAt)
+                .build());
+    }
+
+    private Payment.Status statusOf(String id) {
+        return payments.findById(id).orElseThrow().getStatus();
+    }
+
+    @Test
+    @DisplayName("Deve expirar só PIX/BOLETO pendentes fora do prazo, no máximo batch-size linhas por lote")
+    void shouldExpireOnlyOverduePixAndBoleto() throws Exception {
+        for (int i = 0; i < 3; i++) payment("pay_pix" + i, "PIX", Payment.Status.PENDING, OVERDUE_PIX.minusSeconds(i));
+        payment("pay_boleto", "BOLETO", Payment.Status.PENDING, OVERDUE_BOLETO);
+        payment("pay_pix_recent", "PIX", Payment.Status.PENDING, RECENT);
+        payment("pay_boleto_recent", "BOLETO", Payment.Status.PENDING, OVERDUE_PIX);
+        payment("pay_card_old", "CARD", Payment.Status.PENDING, OVERDUE_BOLETO);
+        payment("pay_pix_paid", "PIX", Payment.Status.APPROVED, OVERDUE_PIX);
+
+        // 3 PIX vencidos com batch-size=2: dois lotes (2 + 1); o BOLETO no próprio lote
+        assertEquals(4, sweeper.sweep());
+
+        for (int i = 0; i < 3; i++) assertEquals(Payment.Status.EXPIRED, statusOf("pay_pix" + i));
+        assertEquals(Payment.Status.EXPIRED, statusOf("pay_boleto"));
+        assertEquals(Payment.Status.PENDING, statusOf("pay_pix_recent"));
+        assertEquals(Payment.Status.PENDING, statusOf("pay_boleto_recent"));
+        assertEquals(Payment.Status.PENDING, statusOf("pay_card_old"));
+        assertEquals(Payment.Status.APPROVED, statusOf("pay_pix_paid"));
+
+        // Um payment.updated por pagamento expirado, e nenhum para os demais
+        Map<String, Long> events = awaitDeliveries(4);
+        assertEquals(Map.of("pay_pix0", 1L, "pay_pix1", 1L, "pay_pix2", 1L, "pay_boleto", 1L), events);
+
+        assertEquals(0, sweeper.sweep());
+    }
+
+    @Test
+    @DisplayName("Cada passada deve respeitar batch-size x max-batches-per-run e deixar o resto para a próxima")
+    void shouldBoundRowsPerRun() throws Exception {
+        for (int i = 0; i < 7; i++) payment("pay_pix" + i, "PIX", Payment.Status.PENDING, OVERDUE_PIX.minusSeconds(i));
+
+        assertEquals(4, sweeper.sweep());
+        // Os mais antigos primeiro (ORDER BY created_at)
+        for (int i = 3; i < 7; i++) assertEquals(Payment.Status.EXPIRED, statusOf("pay_pix" + i));
+        for (int i = 0; i < 3; i++) assertEquals(Payment.Status.PENDING, statusOf("pay_pix" + i));
+
+        assertEquals(3, sweeper.sweep());
+        assertEquals(7, awaitDeliveries(7).size());
+    }
+
+    @Test
+    @DisplayName("Aprovação concorrente deve prevalecer: o UPDATE da expiração não sobrescreve APPROVED")
+    void shouldNotOverwriteConcurrentApproval() throws Exception {
+        payment("pay_race", "PIX", Payment.Status.PENDING, OVERDUE_PIX);
+        payment("pay_idle", "PIX", Payment.Status.PENDING, OVERDUE_PIX.plusSeconds(1));
+
+        // A aprovação pega o lock da linha antes do sweep e só confirma com ele já esperando
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> approval = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+            assertEquals(1, payments.transitionStatus("pay_race", Payment.Status.PENDING, Payment.Status.APPROVED, Instant.now()));
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Integer> sweep = CompletableFuture.supplyAsync(sweeper::sweep);
+        Thread.sleep(300);
+        release.countDown();
+        approval.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, sweep.get(10, TimeUnit.SECONDS));
+        assertEquals(Payment.Status.APPROVED, statusOf("pay_race"));
+        assertEquals(Payment.Status.EXPIRED, statusOf("pay_idle"));
+        assertEquals(Map.of("pay_idle", 1L), awaitDeliveries(1));
+    }
+
+    // As entregas são gravadas no webhookExecutor, fora da thread do sweep
+    private Map<String, Long> awaitDeliveries(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<WebhookDelivery> rows = deliveries.findAll();
+        while (rows.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            rows = deliveries.findAll();
+        }
+        // Uma folga para pegar uma entrega a mais, se houvesse
+        Thread.sleep(100);
+        return deliveries.findAll().stream()
+                .peek(d -> assertEquals("payment.updated", d.getEventType()))
+                .collect(Collectors.groupingBy(WebhookDelivery::getPaymentId, Collectors.counting()));
+    }
+}
@@ -0,0 +1,56 @@
+package edu.ucsal.fiadopay.fairness;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FairQueue - Testes Unitários")
+class FairQueueTest {
+
+    @Test
+    @DisplayName("Merchant pequeno deve sair na próxima volta, não atrás da fila do grande")
+    void shouldInterleaveMerchants() {
+        FairQueue<String> queue = new FairQueue<>(100_000, id -> 1);
+        for (int i = 0; i < 50_000; i++) queue.offer(1L, "big-" + i);
+        queue.offer(2L, "small-0");
+
+        assertEquals("big-0", queue.poll());
+        assertEquals("small-0", queue.poll());
+        assertEquals("big-1", queue.poll());
+        assertEquals(0, queue.size(2L));
+        assertEquals(Map.of(1L, 49_998), queue.backlog());
+    }
+
+    @Test
+    @DisplayName("Peso deve definir quantos itens o merchant tira por volta, mantendo FIFO por merchant")
+    void shouldHonorWeightsAndFifo() {
+        FairQueue<String> queue = new FairQueue<>(100, id -> id == 1L ? 3 : 1);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(1L, "a" + i);
+            queue.offer(2L, "b" + i);
+        }
+
+        List<String> out = new ArrayList<>();
+        while (!queue.isEmpty()) out.add(queue.poll());
+
+        assertEquals(List.of("a0", "a1", "a2", "b0", "a3", "a4", "a5", "b1", "b2", "b3", "b4", "b5"), out);
+        assertNull(queue.poll());
+    }
+
+    @Test
+    @DisplayName("Fila cheia de um merchant deve recusar só ele")
+    void shouldBoundEachMerchant() {
+        FairQueue<Integer> queue = new FairQueue<>(2, id -> 1);
+
+        assertTrue(queue.offer(1L, 1));
+        assertTrue(queue.offer(1L, 2));
+        assertFalse(queue.offer(1L, 3));
+        assertTrue(queue.offer(2L, 1));
+        assertEquals(3, queue.size());
+    }
+}
@@ -0,0 +1,93 @@
+package edu.ucsal.fiadopay.format;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.dto.request.PaymentRequest;
+import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.webhook.WebhookPayloadCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Custo de serialização e tamanho de PaymentRequest, PaymentResponse e do corpo do webhook
+ * em JSON, CBOR e Smile (os mesmos mappers usados pela API e pelo WebhookDispatcher).
+ * Rodar com: mvn test -Pbenchmark -Dbench.ops=1000000
+ */
+@Tag("benchmark")
+@DisplayName("Benchmark - Formatos de payload (JSON, CBOR, Smile)")
+class PayloadFormatBenchmarkTest {
+
+    private static final int OPS = Integer.getInteger("bench.ops", 200_000);
+    private static final int WARMUP = Math.max(20_000, OPS / 5);
+
+    private final PayloadMappers mappers = new PayloadMappers(new ObjectMapper().findAndRegisterModules());
+    private final WebhookPayloadCodec codec = new WebhookPayloadCodec(mappers);
+
+    @Test
+    @DisplayName("Tempo de escrita/leitura e bytes por formato")
+    void compareFormats() throws Exception {
+        PaymentRequest request = new PaymentRequest("CARD", "BRL", new BigDecimal("1234.56"), 6, "ORDER-2025-000123");
+        PaymentResponse response = new PaymentResponse("pay_a1b2c3d4", "APPROVED", "CARD",
+                new BigDecimal("1234.56"), 6, 1.0, new BigDecimal("1310.42"));
+        Map<String, Object> webhook = webhookEnvelope();
+
+        System.out.printf("%n[bench] formatos de payload, %,d operações por caso%n", OPS);
+        System.out.printf("[bench]   %-16s %-6s %7s %12s %12s%n", "payload", "fmt", "bytes", "escrita", "leitura");
+        for (PayloadFormat format : PayloadFormat.values()) {
+            measure("PaymentRequest", format, request, PaymentRequest.class);
+        }
+        for (PayloadFormat format : PayloadFormat.values()) {
+            measure("PaymentResponse", format, response, PaymentResponse.class);
+        }
+        for (PayloadFormat format : PayloadFormat.values()) {
+            measure("webhook", format, webhook, Map.class);
+        }
+    }
+
+    private <T> void measure(String name, PayloadFormat format, T value, Class<?> type) throws Exception {
+        ObjectMapper mapper = mappers.of(format);
+        byte[] bytes = mapper.writeValueAsBytes(value);
+        // Ida e volta sem perda (no Map do webhook, 42L volta como Integer: compara os bytes)
+        assertArrayEquals(bytes, mapper.writeValueAsBytes(mapper.readValue(bytes, type)));
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += mapper.writeValueAsBytes(value).length;
+            sink += mapper.readValue(bytes, type).hashCode();
+        }
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) sink += mapper.writeValueAsBytes(value).length;
+        long writeNs = System.nanoTime() - t0;
+
+        long t1 = System.nanoTime();
+        for (int i = 0; i < OPS; i++) sink += mapper.readValue(bytes, type).hashCode();
+        long readNs = System.nanoTime() - t1;
+
+        System.out.printf("[bench]   %-16s %-6s %5d B %9.0f ns %9.0f ns%n",
+                name, format, bytes.length, (double) writeNs / OPS, (double) readNs / OPS);
+        assertNotEquals(0, sink);
+    }
+
+    // O mesmo envelope que o WebhookDispatcher assina e envia
+    private Map<String, Object> webhookEnvelope() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("status", "APPROVED");
+        data.put("occurredAt", Instant.parse("2025-11-18T14:30:00Z").toString());
+        WebhookDelivery d = WebhookDelivery.builder()
+                .eventId("evt_9f8e7d6c")
+                .eventType("payment.updated")
+                .paymentId("pay_a1b2c3d4")
+                .sequence(42L)
+                .build();
+        return codec.envelope(d, codec.pack(data));
+    }
+}
@@ -0,0 +1,30 @@
+package edu.ucsal.fiadopay.format;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PayloadFormat - Testes Unitários")
+class PayloadFormatTest {
+
+    @Test
+    @DisplayName("Accept deve escolher o formato pela qualidade; sem Accept vale JSON")
+    void shouldNegotiateByAccept() {
+        assertEquals(PayloadFormat.JSON, PayloadFormat.negotiate(null));
+        assertEquals(PayloadFormat.JSON, PayloadFormat.negotiate("*/*"));
+        assertEquals(PayloadFormat.CBOR, PayloadFormat.negotiate("application/cbor"));
+        assertEquals(PayloadFormat.SMILE, PayloadFormat.negotiate("application/json;q=0.5, application/x-jackson-smile"));
+        assertEquals(PayloadFormat.CBOR, PayloadFormat.negotiate("text/html, application/cbor;q=0.9"));
+        assertNull(PayloadFormat.negotiate("text/html"));
+    }
+
+    @Test
+    @DisplayName("Empate de qualidade vai para o tipo mais específico; q=0 recusa o tipo")
+    void shouldHonourSpecificityAndZeroQuality() {
+        assertEquals(PayloadFormat.CBOR, PayloadFormat.negotiate("*/*, application/cbor"));
+        assertEquals(PayloadFormat.SMILE, PayloadFormat.negotiate("application/*;q=0.8, application/x-jackson-smile;q=0.8"));
+        assertEquals(PayloadFormat.CBOR, PayloadFormat.negotiate("application/json;q=0, */*;q=0.1"));
+        assertNull(PayloadFormat.negotiate("application/json;q=0"));
+    }
+}
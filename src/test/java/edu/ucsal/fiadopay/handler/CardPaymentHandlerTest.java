@@ -0,0 +1,40 @@
+package edu.ucsal.fiadopay.handler;
+
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.dto.request.PaymentRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CardPaymentHandler - Testes Unitários")
+class CardPaymentHandlerTest {
+
+    // Limite configurado abaixo do @Max(12) do DTO
+    private final CardPaymentHandler handler = new CardPaymentHandler(new InstallmentTable(new BigDecimal("1.0"), 6));
+
+    private static PaymentRequest card(int installments) {
+        return new PaymentRequest("CARD", "BRL", new BigDecimal("100.00"), installments, null);
+    }
+
+    @Test
+    @DisplayName("Deve calcular o total com juros dentro do limite de parcelas")
+    void shouldApplyInterestWithinLimit() {
+        Payment p = handler.process(new Payment(), card(3));
+
+        assertEquals(new BigDecimal("103.03"), p.getTotalWithInterest());
+        assertEquals(1.0, p.getMonthlyInterest());
+    }
+
+    @Test
+    @DisplayName("Parcelas acima de max-installments devem virar 400, não 500")
+    void shouldRejectInstallmentsAboveConfiguredMax() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> handler.process(new Payment(), card(12)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+}
@@ -0,0 +1,45 @@
+package edu.ucsal.fiadopay.handler;
+
+import edu.ucsal.fiadopay.dto.response.InstallmentOption;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("InstallmentTable - Testes Unitários")
+class InstallmentTableTest {
+
+    private final InstallmentTable table = new InstallmentTable(new BigDecimal("1.0"), 12);
+
+    @Test
+    @DisplayName("Total deve ser igual ao cálculo original com BigDecimal.pow")
+    void totalShouldMatchPowCalculation() {
+        BigDecimal amount = new BigDecimal("1234.56");
+        for (int n = 1; n <= 12; n++) {
+            BigDecimal expected = amount.multiply(BigDecimal.valueOf(1.01).pow(n)).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(expected, table.total(amount, new BigDecimal("1.00"), n), "parcelas: " + n);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve cotar à vista sem juros e de 2 a 12 parcelas com juros")
+    void shouldQuoteAllPlans() {
+        List<InstallmentOption> plans = table.plans(new BigDecimal("100.00"), new BigDecimal("1.0"));
+
+        assertEquals(12, plans.size());
+        assertEquals(new BigDecimal("100.00"), plans.get(0).total());
+        assertEquals(new BigDecimal("103.03"), plans.get(2).total());
+        assertEquals(new BigDecimal("34.34"), plans.get(2).installmentAmount());
+        assertEquals(new BigDecimal("3.03"), plans.get(2).interest());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar número de parcelas fora da tabela")
+    void shouldRejectOutOfRangeInstallments() {
+        assertThrows(IllegalArgumentException.class, () -> table.factor(BigDecimal.ONE, 13));
+    }
+}
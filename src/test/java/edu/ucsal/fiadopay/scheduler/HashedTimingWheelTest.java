@@ -0,0 +1,106 @@
+package edu.ucsal.fiadopay.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HashedTimingWheel - Testes Unitários")
+class HashedTimingWheelTest {
+
+    // Executor direto: a tarefa roda na própria thread da roda
+    private final HashedTimingWheel wheel = new HashedTimingWheel("test-timer", 5, 8, Runnable::run);
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    @DisplayName("Não deve disparar antes do prazo, mesmo com várias voltas na roda")
+    void shouldNotFireBeforeDeadline() throws InterruptedException {
+        // 8 baldes * 5 ms = 40 ms por volta; 120 ms exige 3 voltas
+        long start = System.nanoTime();
+        AtomicLong firedAfter = new AtomicLong();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        wheel.schedule(() -> {
+            firedAfter.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            latch.countDown();
+        }, 120, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(firedAfter.get() >= 120, "disparou em " + firedAfter.get() + " ms");
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    @DisplayName("Deve disparar todos os timers agendados em massa")
+    void shouldFireManyTimers() throws InterruptedException {
+        int n = 10_000;
+        CountDownLatch latch = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            wheel.schedule(latch::countDown, i % 100, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    @DisplayName("Timer cancelado não deve executar")
+    void cancelledTimerShouldNotRun() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        var timeout = wheel.schedule(() -> ran.set(true), 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        Thread.sleep(100);
+
+        assertFalse(ran.get());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    @DisplayName("Tarefa DispatchAware deve ser avisada antes de ir para o executor")
+    void dispatchAwareShouldBeNotifiedBeforeRun() throws InterruptedException {
+        StringBuffer order = new StringBuffer();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        class Task implements Runnable, HashedTimingWheel.DispatchAware {
+            @Override
+            public void onDispatch() {
+                order.append("dispatch;");
+            }
+
+            @Override
+            public void run() {
+                order.append("run;");
+                latch.countDown();
+            }
+        }
+        wheel.schedule(new Task(), 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals("dispatch;run;", order.toString());
+    }
+
+    @Test
+    @DisplayName("Tarefa que lança exceção não deve parar a roda")
+    void shouldKeepFiringAfterFailingTask() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        // Com o executor direto, a exceção sobe para a própria thread da roda
+        wheel.schedule(() -> {
+            throw new IllegalStateException("falha simulada");
+        }, 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+}
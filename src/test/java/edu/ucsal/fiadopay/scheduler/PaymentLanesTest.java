@@ -0,0 +1,156 @@
+package edu.ucsal.fiadopay.scheduler;
+
+import edu.ucsal.fiadopay.config.FairnessProperties;
+import edu.ucsal.fiadopay.config.LaneProperties;
+import edu.ucsal.fiadopay.dto.response.LaneStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PaymentLanes - Testes Unitários")
+class PaymentLanesTest {
+
+    private ExecutorService pool;
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("PIX deve passar na frente de uma fila grande de BOLETO")
+    void shouldNotQueuePixBehindBoleto() throws InterruptedException {
+        PaymentLanes lanes = lanes(2, 1, 100, true);
+        Semaphore release = new Semaphore(0);
+        CountDownLatch pixDone = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(3);
+        AtomicInteger boletoRun = new AtomicInteger();
+
+        for (int i = 0; i < 50; i++) {
+            lanes.execute(PaymentLanes.task("BOLETO", 1L, () -> {
+                boletoRun.incrementAndGet();
+                started.countDown();
+                release.acquireUninterruptibly();
+            }, null));
+        }
+        // BOLETO ocupa a própria vaga e as duas do PIX, emprestadas
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        lanes.execute(PaymentLanes.task("PIX", 2L, pixDone::countDown, null));
+
+        // Libera uma vaga só: ela volta para o PIX, não para o próximo BOLETO da fila
+        release.release();
+        assertTrue(pixDone.await(5, TimeUnit.SECONDS));
+        assertTrue(boletoRun.get() <= 4, "BOLETOs antes do PIX: " + boletoRun.get());
+        release.release(100);
+    }
+
+    @Test
+    @DisplayName("Merchant pequeno não deve esperar a fila de um merchant grande na mesma raia")
+    void shouldShareLaneFairlyAcrossMerchants() throws InterruptedException {
+        PaymentLanes lanes = lanes(1, 1, 100_000, false);
+        Semaphore release = new Semaphore(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch smallDone = new CountDownLatch(1);
+        AtomicInteger bigRun = new AtomicInteger();
+
+        for (int i = 0; i < 1_000; i++) {
+            lanes.execute(PaymentLanes.task("PIX", 1L, () -> {
+                bigRun.incrementAndGet();
+                started.countDown();
+                release.acquireUninterruptibly();
+            }, null));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        lanes.execute(PaymentLanes.task("PIX", 2L, smallDone::countDown, null));
+
+        // Uma vez do merchant grande (peso 1) e já é a vez do pequeno
+        release.release(2);
+        assertTrue(smallDone.await(5, TimeUnit.SECONDS));
+        assertTrue(bigRun.get() <= 3, "pagamentos do merchant grande antes: " + bigRun.get());
+        assertTrue(lanes.backlog().get(1L) >= 997);
+        release.release(1_000);
+    }
+
+    @Test
+    @DisplayName("Raia com fila deve usar vagas de raias ociosas só com borrowing")
+    void shouldBorrowIdleCapacity() throws InterruptedException {
+        for (boolean borrowing : new boolean[]{true, false}) {
+            PaymentLanes lanes = lanes(2, 1, 100, borrowing);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(6);
+
+            for (int i = 0; i < 6; i++) {
+                lanes.execute(PaymentLanes.task("BOLETO", 1L, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    await(release);
+                    running.decrementAndGet();
+                    done.countDown();
+                }, null));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // 3 vagas no total (PIX 2 + BOLETO 1; a raia padrão tem 0)
+            assertEquals(borrowing ? 3 : 1, maxRunning.get());
+            assertTrue(lanes.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Fila da raia cheia deve recusar e avisar a tarefa")
+    void shouldRejectWhenLaneIsFull() throws InterruptedException {
+        PaymentLanes lanes = lanes(1, 1, 2, false);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean rejected = new AtomicBoolean();
+
+        lanes.execute(PaymentLanes.task("BOLETO", 1L, () -> await(release), null)); // rodando
+        lanes.execute(PaymentLanes.task("BOLETO", 1L, () -> {}, null));
+        lanes.execute(PaymentLanes.task("BOLETO", 1L, () -> {}, null));
+        assertThrows(RejectedExecutionException.class,
+                () -> lanes.execute(PaymentLanes.task("BOLETO", 1L, () -> {}, () -> rejected.set(true))));
+        assertTrue(rejected.get());
+
+        release.countDown();
+        assertTrue(lanes.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+        LaneStatus boleto = lanes.snapshot().stream().filter(s -> s.lane().equals("BOLETO")).findFirst().orElseThrow();
+        assertEquals(3, boleto.completed());
+        assertEquals(1, boleto.rejected());
+    }
+
+    private PaymentLanes lanes(int pixConcurrency, int boletoConcurrency, int maxQueued, boolean borrowing) {
+        LaneProperties props = new LaneProperties();
+        props.setBorrowing(borrowing);
+        props.setDefaults(new LaneProperties.Lane(0, maxQueued, Duration.ofSeconds(1)));
+        Map<String, LaneProperties.Lane> methods = new LinkedHashMap<>();
+        methods.put("PIX", new LaneProperties.Lane(pixConcurrency, maxQueued, Duration.ofMillis(50)));
+        methods.put("BOLETO", new LaneProperties.Lane(boletoConcurrency, maxQueued, Duration.ofSeconds(2)));
+        props.setMethods(methods);
+        pool = Executors.newFixedThreadPool(props.totalConcurrency());
+        return new PaymentLanes(pool, props, new FairnessProperties());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.ucsal.fiadopay.service;
+
+import edu.ucsal.fiadopay.config.LookupProperties;
+import edu.ucsal.fiadopay.config.ShardingProperties;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.repo.PaymentRepository;
+import edu.ucsal.fiadopay.shard.ShardContext;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.*;
+
+@DisplayName("PaymentLookupService - Testes Unitários")
+class PaymentLookupServiceTest {
+
+    private final PaymentRepository repository = mock(PaymentRepository.class);
+    private final ShardingProperties sharding = new ShardingProperties();
+    private final ShardRouter router;
+    private final PaymentLookupService lookup;
+
+    PaymentLookupServiceTest() {
+        sharding.setShards(3);
+        router = new ShardRouter(sharding);
+        LookupProperties props = new LookupProperties();
+        props.setMaxIds(50);
+        props.setChunkSize(4);
+        lookup = new PaymentLookupService(repository, router, props, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.stop();
+    }
+
+    @Test
+    @DisplayName("Deve consultar só o shard do merchant, em blocos IN filtrados pelo merchant")
+    void shouldQueryMerchantShardInChunks() {
+        long merchantId = 1;
+        int shard = router.shardOfMerchant(merchantId);
+        List<String> own = IntStream.range(0, 20).mapToObj(i -> router.newPaymentId(merchantId)).toList();
+        List<String> others = IntStream.range(0, 10).mapToObj(i -> router.newPaymentId(merchantId + 1)).toList();
+        List<String> ids = new ArrayList<>(own);
+        ids.addAll(others);
+        String missing = own.get(7);
+        List<Integer> chunkSizes = new ArrayList<>();
+        when(repository.findViewsByMerchantIdAndIdIn(eq(merchantId), any())).thenAnswer(inv -> {
+            Collection<String> chunk = inv.getArgument(1);
+            chunkSizes.add(chunk.size());
+            assertEquals(shard, ShardContext.current());
+            return chunk.stream().filter(id -> !id.equals(missing)).map(PaymentLookupServiceTest::view).toList();
+        });
+
+        List<PaymentResponse> found = new ArrayList<>();
+        lookup.forEach(merchantId, lookup.normalize(ids), found::add);
+
+        assertEquals(19, found.size());
+        assertTrue(found.stream().noneMatch(p -> p.id().equals(missing)));
+        assertTrue(chunkSizes.stream().allMatch(n -> n <= 4), chunkSizes.toString());
+        // Ids de outro shard nem vão ao banco
+        assertEquals(20, chunkSizes.stream().mapToInt(Integer::intValue).sum());
+        verify(repository, never()).findViewsByMerchantIdAndIdIn(longThat(id -> id != merchantId), any());
+    }
+
+    @Test
+    @DisplayName("Deve remover repetidos e recusar lotes acima do limite")
+    void shouldNormalizeIds() {
+        assertEquals(List.of("pay_a", "pay_b"), lookup.normalize(List.of("pay_a", " pay_b ", "pay_a", "")));
+        assertThrows(ResponseStatusException.class, () -> lookup.normalize(List.of(" ")));
+        List<String> tooMany = IntStream.range(0, 51).mapToObj(i -> "pay_" + i).toList();
+        assertThrows(ResponseStatusException.class, () -> lookup.normalize(tooMany));
+    }
+
+    private static PaymentRepository.PaymentView view(String id) {
+        PaymentRepository.PaymentView v = mock(PaymentRepository.PaymentView.class);
+        when(v.getId()).thenReturn(id);
+        when(v.getStatus()).thenReturn(Payment.Status.APPROVED);
+        when(v.getAmount()).thenReturn(BigDecimal.TEN);
+        return v;
+    }
+}
@@ -0,0 +1,101 @@
+package edu.ucsal.fiadopay.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.config.ResponseCacheProperties;
+import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.format.PayloadFormat;
+import edu.ucsal.fiadopay.format.PayloadMappers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PaymentResponseCache - Testes Unitários")
+class PaymentResponseCacheTest {
+
+    private final PaymentResponseCache cache = new PaymentResponseCache(new PayloadMappers(new ObjectMapper()), new ResponseCacheProperties());
+
+    @Test
+    @DisplayName("Polls sem transição devem sair da memória com o mesmo ETag")
+    void shouldServeRepeatedPollsFromMemory() {
+        AtomicInteger loads = new AtomicInteger();
+        PaymentResponseCache.Entry first = cache.get("pay_1", PayloadFormat.JSON, () -> {
+            loads.incrementAndGet();
+            return response("pay_1", "PENDING");
+        });
+        PaymentResponseCache.Entry second = cache.get("pay_1", PayloadFormat.JSON, () -> {
+            loads.incrementAndGet();
+            return response("pay_1", "PENDING");
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(first.etag(), second.etag());
+        assertTrue(new String(second.body(), StandardCharsets.UTF_8).contains("\"status\":\"PENDING\""));
+        assertTrue(second.matches(first.etag()));
+        assertTrue(second.matches("\"outro\", W/" + first.etag()));
+        assertFalse(second.matches("\"outro\""));
+        assertFalse(second.matches(null));
+    }
+
+    @Test
+    @DisplayName("Transição deve invalidar e trocar o ETag")
+    void shouldInvalidateOnTransition() {
+        PaymentResponseCache.Entry pending = cache.get("pay_1", PayloadFormat.JSON, () -> response("pay_1", "PENDING"));
+        cache.invalidate("pay_1");
+        PaymentResponseCache.Entry approved = cache.get("pay_1", PayloadFormat.JSON, () -> response("pay_1", "APPROVED"));
+
+        assertNotEquals(pending.etag(), approved.etag());
+        assertFalse(approved.matches(pending.etag()));
+    }
+
+    @Test
+    @DisplayName("Leitura que cruzou uma transição não deve ficar no cache")
+    void shouldNotKeepStaleReadThatRacedATransition() {
+        // A transição é confirmada enquanto o GET ainda montava a resposta com o status antigo
+        PaymentResponseCache.Entry stale = cache.get("pay_1", PayloadFormat.JSON, () -> {
+            PaymentResponse old = response("pay_1", "PENDING");
+            cache.invalidate("pay_1");
+            return old;
+        });
+        PaymentResponseCache.Entry next = cache.get("pay_1", PayloadFormat.JSON, () -> response("pay_1", "APPROVED"));
+
+        assertNotEquals(stale.etag(), next.etag());
+        assertTrue(new String(next.body(), StandardCharsets.UTF_8).contains("APPROVED"));
+    }
+
+    @Test
+    @DisplayName("Cada formato deve ter corpo e ETag próprios, todos invalidados juntos")
+    void shouldCacheEachFormatSeparately() {
+        PaymentResponseCache.Entry json = cache.get("pay_1", PayloadFormat.JSON, () -> response("pay_1", "PENDING"));
+        PaymentResponseCache.Entry cbor = cache.get("pay_1", PayloadFormat.CBOR, () -> response("pay_1", "PENDING"));
+        assertNotEquals(json.etag(), cbor.etag());
+        assertTrue(cbor.body().length < json.body().length);
+
+        cache.invalidate("pay_1");
+        PaymentResponseCache.Entry smile = cache.get("pay_1", PayloadFormat.SMILE, () -> response("pay_1", "APPROVED"));
+        PaymentResponseCache.Entry cborAfter = cache.get("pay_1", PayloadFormat.CBOR, () -> response("pay_1", "APPROVED"));
+        assertEquals(PayloadFormat.SMILE, smile.format());
+        assertNotEquals(cbor.etag(), cborAfter.etag());
+    }
+
+    @Test
+    @DisplayName("Total de bytes deve respeitar max-bytes")
+    void shouldBoundByBytes() {
+        ResponseCacheProperties props = new ResponseCacheProperties();
+        props.setMaxBytes(10_000);
+        PaymentResponseCache small = new PaymentResponseCache(new PayloadMappers(new ObjectMapper()), props);
+        for (int i = 0; i < 1_000; i++) {
+            String id = "pay_" + i;
+            small.get(id, PayloadFormat.JSON, () -> response(id, "APPROVED"));
+        }
+        assertTrue(small.size() < 100, "entradas: " + small.size());
+    }
+
+    private static PaymentResponse response(String id, String status) {
+        return new PaymentResponse(id, status, "PIX", new BigDecimal("10.00"), 1, 0.0, new BigDecimal("10.00"));
+    }
+}
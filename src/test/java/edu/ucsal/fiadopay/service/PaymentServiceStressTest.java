@@ -0,0 +1,279 @@
+package edu.ucsal.fiadopay.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import edu.ucsal.fiadopay.auth.TokenService;
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.dto.request.PaymentRequest;
+import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Estresse de concorrência do PaymentService contra H2 de verdade (no espírito do jcstress):
+ * muitas threads criando pagamentos com Idempotency-Key repetida, reembolsando enquanto a decisão
+ * assíncrona roda, e um receptor de webhooks que recusa a primeira tentativa de parte dos eventos
+ * (os retries voltam pela timing wheel). A carga vem de sementes fixas; no fim confere os invariantes:
+ * - no máximo um pagamento por (merchant, Idempotency-Key), e todas as respostas da chave com o mesmo id;
+ * - nenhum pagamento parado em PENDING e nenhuma transição perdida ou duplicada;
+ * - cada status final gerou sua entrega, na ordem (sequence) e entregue;
+ * - no máximo um reembolso aceito por pagamento.
+ * Rodar com: mvn test -Pstress -Dstress.ops=20000 -Dstress.threads=32 -Dstress.seed=7
+ */
+@Tag("stress")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "fiadopay.simulation.active-profile=stress",
+        "fiadopay.simulation.profiles.stress.seed=42",
+        "fiadopay.simulation.profiles.stress.failure-rate=0.2",
+        "fiadopay.simulation.profiles.stress.latency.type=UNIFORM",
+        "fiadopay.simulation.profiles.stress.latency.min-ms=0",
+        "fiadopay.simulation.profiles.stress.latency.max-ms=20",
+        "fiadopay.webhook.max-attempts=5",
+        "fiadopay.webhook.timer-tick-ms=5",
+        "fiadopay.webhook.backoff.base=10ms",
+        "fiadopay.webhook.backoff.max=50ms",
+        "fiadopay.webhook.breaker.failure-threshold=1000000",
+        "fiadopay.recovery.enabled=false",
+        "fiadopay.expiry.enabled=false",
+        "fiadopay.retention.enabled=false"
+})
+@DisplayName("Estresse - Concorrência do PaymentService")
+class PaymentServiceStressTest {
+
+    private static final long SEED = Long.getLong("stress.seed", 20_251_019L);
+    private static final int THREADS = Integer.getInteger("stress.threads", 16);
+    private static final int OPS = Integer.getInteger("stress.ops", 4_000);
+    private static final int MERCHANTS = 8;
+    // Chaves por merchant: bem menos que OPS, para criações com a mesma chave se cruzarem
+    private static final int KEYS_PER_MERCHANT = Math.max(1, OPS / (MERCHANTS * 4));
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static HttpServer hook;
+    private static final Map<String, AtomicInteger> hookAttempts = new ConcurrentHashMap<>();
+    private static final Map<String, JsonNode> hookEvents = new ConcurrentHashMap<>();
+    private static final Map<String, Long> ownerById = new ConcurrentHashMap<>();
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private MerchantRepository merchants;
+
+    @Autowired
+    private TokenService tokens;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void startHook() throws IOException {
+        hook = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        hook.setExecutor(Executors.newFixedThreadPool(8));
+        hook.createContext("/hook", exchange -> {
+            JsonNode event = JSON.readTree(exchange.getRequestBody().readAllBytes());
+            String eventId = event.path("id").asText();
+            int attempt = hookAttempts.computeIfAbsent(eventId, k -> new AtomicInteger()).incrementAndGet();
+            // Um quarto dos eventos falha na primeira tentativa (decidido pela semente, não pela ordem)
+            boolean fail = attempt == 1 && Math.floorMod(Objects.hash(SEED, eventId), 4) == 0;
+            if (!fail) hookEvents.putIfAbsent(eventId, event);
+            exchange.sendResponseHeaders(fail ? 500 : 200, -1);
+            exchange.close();
+        });
+        hook.start();
+    }
+
+    @AfterAll
+    static void stopHook() {
+        hook.stop(0);
+    }
+
+    @Test
+    @DisplayName("Criações idempotentes, decisões, reembolsos e retries concorrentes")
+    void hammerPaymentPaths() throws Exception {
+        String hookUrl = "http://127.0.0.1:" + hook.getAddress().getPort() + "/hook";
+        List<Merchant> ms = new ArrayList<>();
+        Map<Long, String> auth = new HashMap<>();
+        for (int i = 0; i < MERCHANTS; i++) {
+            Merchant m = merchants.save(Merchant.builder()
+                    .name("stress-" + UUID.randomUUID())
+                    .clientId(UUID.randomUUID().toString())
+                    .clientSecret("s")
+                    .webhookUrl(hookUrl)
+                    .status(Merchant.Status.ACTIVE)
+                    .build());
+            ms.add(m);
+            auth.put(m.getId(), "Bearer " + tokens.issue(m).access_token());
+        }
+
+        Map<String, List<String>> idsByKey = new ConcurrentHashMap<>();
+        List<String> created = new CopyOnWriteArrayList<>();
+        Map<String, AtomicInteger> refundsAccepted = new ConcurrentHashMap<>();
+        AtomicLong creates = new AtomicLong();
+        AtomicLong refunds = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random rnd = new Random(SEED * 31 + t);
+            int ops = OPS / THREADS;
+            workers.add(pool.submit(() -> {
+                go.await();
+                for (int i = 0; i < ops; i++) {
+                    Merchant m = ms.get(rnd.nextInt(ms.size()));
+                    int op = rnd.nextInt(10);
+                    if (op < 3 && !created.isEmpty()) {
+                        String id = created.get(rnd.nextInt(created.size()));
+                        try {
+                            paymentService.refund(auth.get(ownerById.get(id)), id);
+                            refundsAccepted.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+                        } catch (ResponseStatusException e) {
+                            assertEquals(409, e.getStatusCode().value(), "refund " + id);
+                        }
+                        refunds.incrementAndGet();
+                        continue;
+                    }
+                    String key = op < 9 ? "k-" + rnd.nextInt(KEYS_PER_MERCHANT) : null;
+                    PaymentResponse r = paymentService.createPayment(auth.get(m.getId()), key, request(m, key, rnd));
+                    if (key != null) {
+                        idsByKey.computeIfAbsent(m.getId() + "/" + key, k -> new CopyOnWriteArrayList<>()).add(r.id());
+                    }
+                    ownerById.put(r.id(), m.getId());
+                    created.add(r.id());
+                    creates.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long t0 = System.nanoTime();
+        go.countDown();
+        for (Future<?> w : workers) w.get(5, TimeUnit.MINUTES);
+        long loadNs = System.nanoTime() - t0;
+        pool.shutdown();
+
+        List<Long> merchantIds = ms.stream().map(Merchant::getId).toList();
+        int expectedEvents = awaitQuiescence(merchantIds);
+        long totalNs = System.nanoTime() - t0;
+
+        System.out.printf("%n[stress] seed=%d threads=%d merchants=%d%n", SEED, THREADS, MERCHANTS);
+        System.out.printf("[stress]   carga : %,d criações + %,d reembolsos em %,d ms (%,.0f ops/s)%n",
+                creates.get(), refunds.get(), loadNs / 1_000_000, (creates.get() + refunds.get()) / (loadNs / 1e9));
+        System.out.printf("[stress]   fim   : %,d eventos entregues (%,d tentativas) em %,d ms (%,.0f eventos/s)%n",
+                expectedEvents, hookAttempts.values().stream().mapToInt(AtomicInteger::get).sum(),
+                totalNs / 1_000_000, expectedEvents / (totalNs / 1e9));
+
+        // ---- Idempotência: todas as respostas de uma chave com o mesmo id, e uma linha por chave ----
+        idsByKey.forEach((key, ids) ->
+                assertEquals(1, ids.stream().distinct().count(), "ids diferentes para " + key + ": " + ids));
+        List<Map<String, Object>> dupKeys = jdbc.queryForList("""
+                select merchant_id, idempotency_key, count(*) c from payment
+                where idempotency_key is not null and merchant_id in (%s)
+                group by merchant_id, idempotency_key having count(*) > 1""".formatted(in(merchantIds)));
+        assertTrue(dupKeys.isEmpty(), "chaves duplicadas: " + dupKeys);
+
+        // ---- Transições: nada em PENDING e eventos por pagamento coerentes com o status final ----
+        Map<String, String> statusById = new HashMap<>();
+        jdbc.query("select id, status from payment where merchant_id in (%s)".formatted(in(merchantIds)),
+                rs -> { statusById.put(rs.getString(1), rs.getString(2)); });
+        assertTrue(statusById.keySet().containsAll(created), "pagamento criado sumiu");
+        Map<String, List<JsonNode>> eventsByPayment = hookEvents.values().stream()
+                .filter(e -> statusById.containsKey(e.path("data").path("paymentId").asText()))
+                .collect(Collectors.groupingBy(e -> e.path("data").path("paymentId").asText()));
+
+        statusById.forEach((id, status) -> {
+            assertNotEquals("PENDING", status, "pagamento parado: " + id);
+            List<JsonNode> events = new ArrayList<>(eventsByPayment.getOrDefault(id, List.of()));
+            events.sort(Comparator.comparingLong(e -> e.path("sequence").asLong()));
+            List<String> seen = events.stream().map(e -> e.path("data").path("status").asText()).toList();
+            List<String> expected = status.equals("REFUNDED") ? List.of("APPROVED", "REFUNDED") : List.of(status);
+            assertEquals(expected, seen, "eventos de " + id);
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(i + 1, events.get(i).path("sequence").asLong(), "sequence de " + id);
+            }
+            int accepted = refundsAccepted.getOrDefault(id, new AtomicInteger()).get();
+            assertEquals(status.equals("REFUNDED") ? 1 : 0, accepted, "reembolsos aceitos de " + id);
+        });
+
+        // ---- Entregas: uma por transição, todas entregues ----
+        Integer undelivered = jdbc.queryForObject(
+                "select count(*) from webhook_delivery where delivered = false and merchant_id in (%s)"
+                        .formatted(in(merchantIds)), Integer.class);
+        assertEquals(0, undelivered);
+    }
+
+    // Espera os pagamentos saírem de PENDING e todos os eventos esperados chegarem ao receptor
+    private int awaitQuiescence(List<Long> merchantIds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        int expected = 0;
+        while (System.nanoTime() < deadline) {
+            Map<String, Integer> byStatus = new HashMap<>();
+            jdbc.query("select status, count(*) from payment where merchant_id in (%s) group by status"
+                    .formatted(in(merchantIds)), rs -> { byStatus.put(rs.getString(1), rs.getInt(2)); });
+            expected = byStatus.getOrDefault("APPROVED", 0) + byStatus.getOrDefault("DECLINED", 0)
+                    + 2 * byStatus.getOrDefault("REFUNDED", 0);
+            long received = hookEvents.values().stream()
+                    .filter(e -> merchantIds.contains(merchantOf(e))).count();
+            Integer undelivered = jdbc.queryForObject(
+                    "select count(*) from webhook_delivery where delivered = false and merchant_id in (%s)"
+                            .formatted(in(merchantIds)), Integer.class);
+            if (byStatus.getOrDefault("PENDING", 0) == 0 && received >= expected && undelivered == 0) {
+                return expected;
+            }
+            Thread.sleep(100);
+        }
+        fail("carga não terminou em 2 minutos");
+        return expected;
+    }
+
+    private Long merchantOf(JsonNode event) {
+        return ownerById.get(event.path("data").path("paymentId").asText());
+    }
+
+    // Mesmo corpo para a mesma chave (o retry de verdade); valores acima de 5000 caem no antifraude
+    private PaymentRequest request(Merchant m, String key, Random rnd) {
+        long seed = key == null ? rnd.nextLong() : Objects.hash(SEED, m.getId(), key);
+        Random body = new Random(seed);
+        String method = List.of("PIX", "CARD", "DEBIT", "BOLETO").get(body.nextInt(4));
+        BigDecimal amount = BigDecimal.valueOf(1 + body.nextInt(6_000));
+        return new PaymentRequest(method, "BRL", amount, method.equals("CARD") ? 1 + body.nextInt(12) : 1, key);
+    }
+
+    private static String in(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
@@ -1,28 +1,42 @@
 package edu.ucsal.fiadopay.service;
 
+import edu.ucsal.fiadopay.auth.TokenRevocations;
+import edu.ucsal.fiadopay.auth.TokenService;
 import edu.ucsal.fiadopay.domain.Merchant;
 import edu.ucsal.fiadopay.domain.Payment;
 import edu.ucsal.fiadopay.dto.request.PaymentRequest;
 import edu.ucsal.fiadopay.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.config.IdempotencyProperties;
+import edu.ucsal.fiadopay.config.ShardingProperties;
 import edu.ucsal.fiadopay.handler.PaymentHandler;
+import edu.ucsal.fiadopay.idempotency.IdempotencyService;
 import edu.ucsal.fiadopay.registry.PaymentHandlerRegistry;
 import edu.ucsal.fiadopay.repo.MerchantRepository;
 import edu.ucsal.fiadopay.repo.PaymentRepository;
-import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.scheduler.PaymentCompletionScheduler;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import edu.ucsal.fiadopay.simulation.ProcessingSimulator;
+import edu.ucsal.fiadopay.webhook.WebhookDispatcher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -39,33 +53,40 @@ class PaymentServiceTest {
     private PaymentRepository paymentRepository;
 
     @Mock
-    private WebhookDeliveryRepository webhookDeliveryRepository;
+    private PaymentHandlerRegistry registry;
 
     @Mock
-    private PaymentHandlerRegistry registry;
+    private PaymentCompletionScheduler completionScheduler;
 
     @Mock
-    private ExecutorService paymentExecutor;
+    private WebhookDispatcher webhooks;
 
     @Mock
-    private ExecutorService webhookExecutor;
+    private ProcessingSimulator simulator;
 
     @Mock
-    private ObjectMapper objectMapper;
+    private PaymentResponseCache responseCache;
+
+    private final TokenRevocations revocations = new TokenRevocations(mock(MerchantRepository.class));
+
+    @Spy
+    private TokenService tokens = new TokenService("test-secret", Duration.ofHours(1), revocations);
+
+    @Spy
+    private ShardRouter shards = new ShardRouter(new ShardingProperties());
+
+    @Spy
+    private IdempotencyService idempotency = new IdempotencyService(new IdempotencyProperties());
 
     @InjectMocks
     private PaymentService paymentService;
 
     private Merchant mockMerchant;
     private PaymentRequest validRequest;
+    private String authHeader;
 
     @BeforeEach
     void setUp() {
-        // Configura propriedades via reflection (simula application.yml)
-        ReflectionTestUtils.setField(paymentService, "webhookSecret", "test-secret");
-        ReflectionTestUtils.setField(paymentService, "processingDelayMs", 100L);
-        ReflectionTestUtils.setField(paymentService, "failureRate", 0.0);
-
         // Mock merchant válido
         mockMerchant = Merchant.builder()
                 .id(1L)
@@ -75,6 +96,7 @@ class PaymentServiceTest {
                 .webhookUrl("https://webhook.test")
                 .status(Merchant.Status.ACTIVE)
                 .build();
+        authHeader = "Bearer " + tokens.issue(mockMerchant).access_token();
 
         // Request válido
         validRequest = new PaymentRequest(
@@ -90,8 +112,6 @@ class PaymentServiceTest {
     @DisplayName("Deve criar pagamento com sucesso")
     void shouldCreatePaymentSuccessfully() {
         // Arrange
-        String authHeader = "Bearer FAKE-1";
-        when(merchantRepository.findById(1L)).thenReturn(Optional.of(mockMerchant));
         when(paymentRepository.findByIdempotencyKeyAndMerchantId(anyString(), anyLong()))
                 .thenReturn(Optional.empty());
 
@@ -103,8 +123,8 @@ class PaymentServiceTest {
             return p;
         });
 
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        doNothing().when(paymentExecutor).execute(any(Runnable.class));
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(simulator.nextDelayMs(any())).thenReturn(100L);
 
         // Act
         PaymentResponse response = paymentService.createPayment(authHeader, "IDEM-123", validRequest);
@@ -117,15 +137,16 @@ class PaymentServiceTest {
         assertEquals(3, response.installments());
         assertEquals(new BigDecimal("103.03"), response.total());
 
-        verify(paymentRepository, times(1)).save(any(Payment.class));
-        verify(paymentExecutor, times(1)).execute(any(Runnable.class));
+        verify(paymentRepository, times(1)).saveAndFlush(any(Payment.class));
+        verify(completionScheduler, times(1)).schedule(argThat(p -> "CARD".equals(p.getMethod())), any(Runnable.class), any(Runnable.class), eq(100L));
+        // Token assinado: nenhuma consulta de merchant no caminho da autenticação
+        verifyNoInteractions(merchantRepository);
     }
 
     @Test
     @DisplayName("Deve retornar pagamento existente quando usar mesma idempotency key")
     void shouldReturnExistingPaymentForSameIdempotencyKey() {
         // Arrange
-        String authHeader = "Bearer FAKE-1";
         String idempotencyKey = "IDEM-123";
 
         Payment existingPayment = Payment.builder()
@@ -139,7 +160,6 @@ class PaymentServiceTest {
                 .status(Payment.Status.APPROVED)
                 .build();
 
-        when(merchantRepository.findById(1L)).thenReturn(Optional.of(mockMerchant));
         when(paymentRepository.findByIdempotencyKeyAndMerchantId(idempotencyKey, 1L))
                 .thenReturn(Optional.of(existingPayment));
 
@@ -151,15 +171,85 @@ class PaymentServiceTest {
         assertEquals("pay_existing", response.id());
         assertEquals("APPROVED", response.status());
 
-        verify(paymentRepository, never()).save(any());
-        verify(paymentExecutor, never()).execute(any());
+        verify(paymentRepository, never()).saveAndFlush(any());
+        verify(completionScheduler, never()).schedule(any(), any(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Retry com a mesma chave deve vir do cache; outro corpo com a mesma chave deve dar 422")
+    void shouldReplayFromCacheAndRejectDifferentBody() {
+        when(paymentRepository.findByIdempotencyKeyAndMerchantId("IDEM-9", 1L)).thenReturn(Optional.empty());
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        PaymentResponse first = paymentService.createPayment(authHeader, "IDEM-9", validRequest);
+        // Mesmo corpo, escrito de outro jeito (100 == 100.00, método em minúsculas)
+        PaymentRequest sameBody = new PaymentRequest("card", "BRL", new BigDecimal("100"), 3, "ORDER-123");
+        PaymentResponse retry = paymentService.createPayment(authHeader, "IDEM-9", sameBody);
+
+        assertEquals(first.id(), retry.id());
+        verify(paymentRepository, times(1)).findByIdempotencyKeyAndMerchantId("IDEM-9", 1L);
+        verify(paymentRepository, times(1)).saveAndFlush(any(Payment.class));
+
+        PaymentRequest otherBody = new PaymentRequest("CARD", "BRL", new BigDecimal("999.00"), 3, "ORDER-123");
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> paymentService.createPayment(authHeader, "IDEM-9", otherBody));
+        assertEquals(422, ex.getStatusCode().value());
+    }
+
+    @Test
+    @DisplayName("Retry vindo do cache deve trazer o status atual do pagamento, não o da criação")
+    void cachedReplayShouldReturnCurrentStatus() {
+        when(paymentRepository.findByIdempotencyKeyAndMerchantId("IDEM-7", 1L)).thenReturn(Optional.empty());
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        PaymentResponse first = paymentService.createPayment(authHeader, "IDEM-7", validRequest);
+        assertEquals("PENDING", first.status());
+
+        when(paymentRepository.findById(first.id())).thenReturn(Optional.of(Payment.builder()
+                .id(first.id()).merchantId(1L).method("CARD").amount(new BigDecimal("100.00")).currency("BRL")
+                .installments(3).totalWithInterest(new BigDecimal("103.03")).status(Payment.Status.APPROVED).build()));
+        PaymentResponse retry = paymentService.createPayment(authHeader, "IDEM-7", validRequest);
+
+        assertEquals(first.id(), retry.id());
+        assertEquals("APPROVED", retry.status());
+        verify(paymentRepository, times(1)).findByIdempotencyKeyAndMerchantId("IDEM-7", 1L);
+    }
+
+    @Test
+    @DisplayName("Requisições simultâneas com a mesma chave devem criar um único pagamento")
+    void concurrentRetriesShouldCreateOnce() throws Exception {
+        when(paymentRepository.findByIdempotencyKeyAndMerchantId("IDEM-RACE", 1L)).thenReturn(Optional.empty());
+        CountDownLatch inInsert = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> {
+            inInsert.countDown();
+            release.await(2, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<PaymentResponse> leader = pool.submit(() -> paymentService.createPayment(authHeader, "IDEM-RACE", validRequest));
+            assertTrue(inInsert.await(2, TimeUnit.SECONDS));
+            List<Future<PaymentResponse>> retries = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                retries.add(pool.submit(() -> paymentService.createPayment(authHeader, "IDEM-RACE", validRequest)));
+            }
+            release.countDown();
+
+            String id = leader.get(2, TimeUnit.SECONDS).id();
+            for (Future<PaymentResponse> f : retries) assertEquals(id, f.get(2, TimeUnit.SECONDS).id());
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(paymentRepository, times(1)).saveAndFlush(any(Payment.class));
     }
 
     @Test
     @DisplayName("Deve lançar exceção 401 para token inválido")
     void shouldThrow401ForInvalidToken() {
         // Arrange
-        String invalidAuthHeader = "Bearer INVALID-TOKEN";
+        String invalidAuthHeader = authHeader.substring(0, authHeader.length() - 2) + "xx";
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(
@@ -171,12 +261,10 @@ class PaymentServiceTest {
     }
 
     @Test
-    @DisplayName("Deve lançar exceção 401 para merchant inativo")
-    void shouldThrow401ForInactiveMerchant() {
+    @DisplayName("Deve lançar exceção 401 para merchant bloqueado")
+    void shouldThrow401ForBlockedMerchant() {
         // Arrange
-        String authHeader = "Bearer FAKE-1";
-        mockMerchant.setStatus(Merchant.Status.BLOCKED);
-        when(merchantRepository.findById(1L)).thenReturn(Optional.of(mockMerchant));
+        revocations.block(1L);
 
         // Act & Assert
         ResponseStatusException exception = assertThrows(
@@ -187,6 +275,42 @@ class PaymentServiceTest {
         assertEquals(401, exception.getStatusCode().value());
     }
 
+    @Test
+    @DisplayName("Deve lançar exceção 401 para token expirado ou revogado")
+    void shouldThrow401ForExpiredOrRevokedToken() {
+        // Arrange
+        TokenService expiredTokens = new TokenService("test-secret", Duration.ofSeconds(-1), revocations);
+        String expired = "Bearer " + expiredTokens.issue(mockMerchant).access_token();
+        tokens.revoke(authHeader);
+
+        // Act & Assert
+        assertEquals(401, assertThrows(ResponseStatusException.class,
+                () -> paymentService.createPayment(expired, null, validRequest)).getStatusCode().value());
+        assertEquals(401, assertThrows(ResponseStatusException.class,
+                () -> paymentService.createPayment(authHeader, null, validRequest)).getStatusCode().value());
+    }
+
+    @Test
+    @DisplayName("Recuperação não deve reagendar pagamento que já está em andamento")
+    void resumeShouldNotDoubleSchedule() {
+        // Arrange
+        Payment pending = Payment.builder()
+                .id("pay_orphan")
+                .merchantId(1L)
+                .method("PIX")
+                .status(Payment.Status.PENDING)
+                .build();
+
+        // Act
+        boolean first = paymentService.resume(pending);
+        boolean second = paymentService.resume(pending);
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        verify(completionScheduler, times(1)).schedule(argThat(p -> "PIX".equals(p.getMethod())), any(Runnable.class), any(Runnable.class), eq(0L));
+    }
+
     @Test
     @DisplayName("Deve buscar pagamento por ID com sucesso")
     void shouldGetPaymentById() {
@@ -228,4 +352,18 @@ class PaymentServiceTest {
 
         assertEquals(404, exception.getStatusCode().value());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Reembolso aplicado deve responder normalmente mesmo se a publicação do webhook falhar")
+    void refundShouldSucceedWhenPublishFails() {
+        Payment approved = Payment.builder().id("pay_1").merchantId(1L).method("CARD")
+                .status(Payment.Status.APPROVED).build();
+        when(paymentRepository.findById("pay_1")).thenReturn(Optional.of(approved));
+        when(paymentRepository.transitionStatus(eq("pay_1"), eq(Payment.Status.APPROVED), eq(Payment.Status.REFUNDED), any()))
+                .thenReturn(1);
+        doThrow(new IllegalStateException("banco fora")).when(webhooks).publish(any());
+
+        assertEquals("PENDING", paymentService.refund(authHeader, "pay_1").get("status"));
+        assertEquals(Payment.Status.REFUNDED, approved.getStatus());
+    }
+}
@@ -0,0 +1,60 @@
+package edu.ucsal.fiadopay.shard;
+
+import edu.ucsal.fiadopay.config.ShardingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ShardRouter - Testes Unitários")
+class ShardRouterTest {
+
+    private final ShardRouter router = new ShardRouter(shards(4));
+
+    @AfterEach
+    void tearDown() {
+        router.stop();
+    }
+
+    @Test
+    @DisplayName("Id do pagamento deve apontar para o shard do merchant")
+    void paymentIdShouldLandOnMerchantShard() {
+        for (long merchantId = 1; merchantId <= 40; merchantId++) {
+            String id = router.newPaymentId(merchantId);
+            assertTrue(id.matches("pay_[0-9a-f]{8}"), id);
+            assertEquals(router.shardOfMerchant(merchantId), router.shardOfPayment(id));
+        }
+    }
+
+    @Test
+    @DisplayName("Scatter deve rodar cada consulta com o contexto do próprio shard")
+    void scatterShouldSetContextPerShard() {
+        List<Integer> seen = router.scatter(shard -> ShardContext.current());
+
+        assertEquals(List.of(0, 1, 2, 3), seen);
+        assertEquals(0, ShardContext.current());
+    }
+
+    @Test
+    @DisplayName("Escopo aninhado deve restaurar o shard anterior")
+    void nestedScopeShouldRestorePrevious() {
+        int inner = ShardContext.call(2, () -> ShardContext.call(3, ShardContext::current));
+        int outer = ShardContext.call(2, () -> {
+            ShardContext.run(3, () -> {});
+            return ShardContext.current();
+        });
+
+        assertEquals(3, inner);
+        assertEquals(2, outer);
+        assertEquals(0, ShardContext.current());
+    }
+
+    private static ShardingProperties shards(int n) {
+        ShardingProperties props = new ShardingProperties();
+        props.setShards(n);
+        return props;
+    }
+}
@@ -0,0 +1,71 @@
+package edu.ucsal.fiadopay.shard;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ShardSchemaReplicator - Testes Unitários")
+class ShardSchemaReplicatorTest {
+
+    private static DataSource h2() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        return ds;
+    }
+
+    private static void exec(DataSource ds, String... sql) throws SQLException {
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            for (String s : sql) st.execute(s);
+        }
+    }
+
+    private static boolean hasColumn(DataSource ds, String table, String column) throws SQLException {
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = '"
+                     + table + "' AND COLUMN_NAME = '" + column + "'")) {
+            rs.next();
+            return rs.getInt(1) > 0;
+        }
+    }
+
+    @Test
+    @DisplayName("Coluna nova no shard 0 deve chegar a um shard que já tinha a tabela")
+    void shouldAddMissingColumnsToExistingShard() throws SQLException {
+        DataSource zero = h2(), one = h2();
+        exec(one, "CREATE TABLE webhook_delivery (id BIGINT PRIMARY KEY, event_id VARCHAR(255))",
+                "INSERT INTO webhook_delivery VALUES (1, 'evt_1')");
+        exec(zero, "CREATE TABLE payment (id VARCHAR(255) PRIMARY KEY)",
+                "CREATE TABLE webhook_delivery (id BIGINT PRIMARY KEY, event_id VARCHAR(255), "
+                        + "format VARCHAR(10) CHECK (format IN ('JSON', 'CBOR')), max_attempts INTEGER DEFAULT 5)",
+                "CREATE INDEX idx_delivery_format ON webhook_delivery (format)");
+
+        new ShardSchemaReplicator(new ShardRoutingDataSource(List.of(zero, one)), null).replicate();
+
+        assertTrue(hasColumn(one, "WEBHOOK_DELIVERY", "FORMAT"));
+        assertTrue(hasColumn(one, "WEBHOOK_DELIVERY", "MAX_ATTEMPTS"));
+        exec(one, "INSERT INTO webhook_delivery (id, event_id, format) VALUES (2, 'evt_2', 'CBOR')");
+    }
+
+    @Test
+    @DisplayName("Coluna que não pode ser criada no shard deve impedir a subida")
+    void shouldFailFastWhenColumnCannotBeAdded() throws SQLException {
+        DataSource zero = h2(), one = h2();
+        exec(one, "CREATE TABLE payment (id VARCHAR(255) PRIMARY KEY)", "INSERT INTO payment VALUES ('pay_1')");
+        exec(zero, "CREATE TABLE payment (id VARCHAR(255) PRIMARY KEY, currency VARCHAR(10) NOT NULL)");
+
+        ShardSchemaReplicator replicator = new ShardSchemaReplicator(new ShardRoutingDataSource(List.of(zero, one)), null);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, replicator::replicate);
+        assertTrue(e.getMessage().contains("PAYMENT.CURRENCY"), e.getMessage());
+    }
+}
@@ -0,0 +1,92 @@
+package edu.ucsal.fiadopay.simulation;
+
+import edu.ucsal.fiadopay.config.SimulationProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LatencyModel - Testes Unitários")
+class LatencyModelTest {
+
+    private static final int SAMPLES = 50_000;
+
+    @Test
+    @DisplayName("FIXED deve devolver sempre o mesmo valor")
+    void fixedShouldBeConstant() {
+        long[] s = sample(LatencyModel.of(latency(SimulationProperties.Distribution.FIXED)));
+        assertEquals(1500, s[0]);
+        assertEquals(1500, s[SAMPLES - 1]);
+    }
+
+    @Test
+    @DisplayName("UNIFORM deve ficar em [min, max] com média no meio")
+    void uniformShouldStayWithinBounds() {
+        SimulationProperties.Latency spec = latency(SimulationProperties.Distribution.UNIFORM);
+        spec.setMinMs(100);
+        spec.setMaxMs(300);
+        long[] s = sample(LatencyModel.of(spec));
+        assertEquals(100, s[0]);
+        assertEquals(300, s[SAMPLES - 1]);
+        assertEquals(200, Arrays.stream(s).average().orElseThrow(), 3);
+        assertThrows(IllegalArgumentException.class, () -> LatencyModel.uniform(10, 5));
+    }
+
+    @Test
+    @DisplayName("LOGNORMAL deve ter a mediana configurada, cauda à direita e respeitar o teto")
+    void logNormalShouldHitMedianAndCap() {
+        SimulationProperties.Latency spec = latency(SimulationProperties.Distribution.LOGNORMAL);
+        spec.setMedianMs(200);
+        spec.setSigma(0.8);
+        long[] s = sample(LatencyModel.of(spec));
+        assertEquals(200, percentile(s, 50), 8);
+        assertTrue(percentile(s, 99) > 3 * percentile(s, 50), "p99 " + percentile(s, 99));
+
+        spec.setCapMs(400);
+        long[] capped = sample(LatencyModel.of(spec));
+        assertEquals(400, capped[SAMPLES - 1]);
+    }
+
+    @Test
+    @DisplayName("EMPIRICAL deve reproduzir os percentis informados")
+    void empiricalShouldMatchPercentiles() {
+        SimulationProperties.Latency spec = latency(SimulationProperties.Distribution.EMPIRICAL);
+        spec.setMinMs(10);
+        spec.setPercentiles(List.of(percentile(99, 2000), percentile(50, 100), percentile(90, 400)));
+        long[] s = sample(LatencyModel.of(spec));
+        assertTrue(s[0] >= 10);
+        assertEquals(100, percentile(s, 50), 5);
+        assertEquals(400, percentile(s, 90), 15);
+        assertEquals(2000, percentile(s, 99), 60);
+        assertEquals(2000, s[SAMPLES - 1]);
+    }
+
+    private static long[] sample(LatencyModel model) {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] s = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) s[i] = model.sampleMs(random);
+        Arrays.sort(s);
+        return s;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.ceil(p / 100.0 * sorted.length) - 1];
+    }
+
+    private static SimulationProperties.Latency latency(SimulationProperties.Distribution type) {
+        SimulationProperties.Latency spec = new SimulationProperties.Latency();
+        spec.setType(type);
+        return spec;
+    }
+
+    private static SimulationProperties.Percentile percentile(double p, long ms) {
+        SimulationProperties.Percentile pc = new SimulationProperties.Percentile();
+        pc.setP(p);
+        pc.setMs(ms);
+        return pc;
+    }
+}
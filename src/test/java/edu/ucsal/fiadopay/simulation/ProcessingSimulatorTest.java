@@ -0,0 +1,127 @@
+package edu.ucsal.fiadopay.simulation;
+
+import edu.ucsal.fiadopay.config.SimulationProperties;
+import edu.ucsal.fiadopay.domain.Payment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProcessingSimulator - Testes Unitários")
+class ProcessingSimulatorTest {
+
+    // Idempotency-Keys do gerador de carga; os ids pay_xxx são sorteados a cada execução
+    private static final List<String> IDS = IntStream.range(0, 200).mapToObj(i -> "k-" + i).toList();
+
+    @Test
+    @DisplayName("Com seed, cada pagamento deve ter a mesma latência e decisão em qualquer thread e ordem")
+    void seededDrawsShouldDependOnlyOnPayment() throws Exception {
+        List<String> first = draws(simulator(42L), IDS);
+
+        // Outra instância, ordem invertida, em 4 threads: mesmo resultado por pagamento
+        ProcessingSimulator other = simulator(42L);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = IDS.size() - 1; i >= 0; i--) {
+                String key = IDS.get(i);
+                futures.add(pool.submit(() -> draw(other, key)));
+            }
+            List<String> second = new ArrayList<>();
+            for (int i = futures.size() - 1; i >= 0; i--) second.add(futures.get(i).get());
+            assertEquals(first, second);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertNotEquals(first, draws(simulator(43L), IDS));
+    }
+
+    @Test
+    @DisplayName("Mesma seed em duas execuções (ids novos a cada uma) deve dar as mesmas decisões")
+    void sameSeedShouldRepeatAcrossRunsWithFreshIds() {
+        assertEquals(run(simulator(42L)), run(simulator(42L)));
+        assertNotEquals(run(simulator(42L)), run(simulator(43L)));
+    }
+
+    @Test
+    @DisplayName("Sem chave nem pedido, os sorteios do pagamento devem ser estáveis pelo id, sem depender da ordem")
+    void withoutKeyDrawsShouldFollowPaymentId() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 50; i++) payments.add(Payment.builder().id(newPaymentId()).merchantId(3L).method("PIX").build());
+        ProcessingSimulator sim = simulator(42L);
+        Map<String, String> forward = new HashMap<>();
+        payments.forEach(p -> forward.put(p.getId(), draw(sim, p)));
+
+        // Outra instância, ordem inversa: nada de contador por merchant ou cache
+        ProcessingSimulator other = simulator(42L);
+        Map<String, String> backward = new HashMap<>();
+        for (int i = payments.size() - 1; i >= 0; i--) backward.put(payments.get(i).getId(), draw(other, payments.get(i)));
+        assertEquals(forward, backward);
+    }
+
+    // Uma "execução": pedidos com chave e só com metadataOrderId, cada um com id novo
+    private static List<String> run(ProcessingSimulator sim) {
+        List<String> draws = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            draws.add(draw(sim, Payment.builder().id(newPaymentId()).merchantId(1L).method("PIX")
+                    .idempotencyKey("k-" + i).build()));
+            draws.add(draw(sim, Payment.builder().id(newPaymentId()).merchantId(2L).method("CARD")
+                    .metadataOrderId("pedido-" + i).build()));
+        }
+        return draws;
+    }
+
+    @Test
+    @DisplayName("Com seed, a taxa de recusa deve seguir o perfil")
+    void seededApprovalShouldFollowFailureRate() {
+        ProcessingSimulator sim = simulator(7L);
+        long declined = IntStream.range(0, 20_000)
+                .filter(i -> !sim.approve(payment("k-" + i)))
+                .count();
+        assertEquals(0.2, declined / 20_000.0, 0.015);
+    }
+
+    private static List<String> draws(ProcessingSimulator sim, List<String> ids) {
+        return ids.stream().map(id -> draw(sim, id)).toList();
+    }
+
+    private static String draw(ProcessingSimulator sim, String key) {
+        return draw(sim, payment(key));
+    }
+
+    private static String draw(ProcessingSimulator sim, Payment p) {
+        return sim.nextDelayMs(p) + ":" + sim.approve(p);
+    }
+
+    private static String newPaymentId() {
+        return "pay_" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static Payment payment(String idempotencyKey) {
+        return Payment.builder().id(newPaymentId()).merchantId(1L).method("PIX").idempotencyKey(idempotencyKey).build();
+    }
+
+    private static ProcessingSimulator simulator(Long seed) {
+        SimulationProperties props = new SimulationProperties();
+        SimulationProperties.Profile profile = new SimulationProperties.Profile();
+        profile.setSeed(seed);
+        profile.setFailureRate(0.2);
+        profile.getLatency().setType(SimulationProperties.Distribution.UNIFORM);
+        profile.getLatency().setMinMs(0);
+        profile.getLatency().setMaxMs(5_000);
+        props.getProfiles().put("test", profile);
+        props.setActiveProfile("test");
+        return new ProcessingSimulator(props, 1500, 0.15);
+    }
+}
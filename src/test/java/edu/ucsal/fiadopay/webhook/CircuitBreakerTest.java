@@ -0,0 +1,73 @@
+package edu.ucsal.fiadopay.webhook;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CircuitBreaker - Testes Unitários")
+class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 1_000;
+
+    @Test
+    @DisplayName("Deve abrir no limite de falhas consecutivas e recusar até passar o tempo aberto")
+    void shouldOpenAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MS);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        breaker.onSuccess();  // zera a sequência
+        breaker.onFailure(10);
+        breaker.onFailure(10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire(10));
+
+        breaker.onFailure(100);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire(100));
+        assertFalse(breaker.tryAcquire(100 + OPEN_MS - 1));
+        assertEquals(400, breaker.retryAfterMs(700));
+    }
+
+    @Test
+    @DisplayName("Meio aberto deve liberar uma única sonda; sucesso fecha o circuito")
+    void shouldAllowSingleProbeThenClose() {
+        CircuitBreaker breaker = open();
+
+        assertTrue(breaker.tryAcquire(OPEN_MS));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        // Com a sonda no ar, ninguém mais passa
+        assertFalse(breaker.tryAcquire(OPEN_MS));
+        assertFalse(breaker.tryAcquire(OPEN_MS + 5_000));
+        assertEquals(OPEN_MS, breaker.retryAfterMs(OPEN_MS));
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.consecutiveFailures());
+        assertTrue(breaker.tryAcquire(OPEN_MS));
+        assertTrue(breaker.tryAcquire(OPEN_MS));
+    }
+
+    @Test
+    @DisplayName("Sonda que falha deve reabrir o circuito por mais um período")
+    void shouldReopenWhenProbeFails() {
+        CircuitBreaker breaker = open();
+
+        assertTrue(breaker.tryAcquire(OPEN_MS));
+        breaker.onFailure(OPEN_MS + 10);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(OPEN_MS + 10, breaker.openedAt());
+        assertFalse(breaker.tryAcquire(2 * OPEN_MS));
+        assertTrue(breaker.tryAcquire(2 * OPEN_MS + 10));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    // Aberto no instante 0
+    private static CircuitBreaker open() {
+        CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MS);
+        breaker.onFailure(0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        return breaker;
+    }
+}
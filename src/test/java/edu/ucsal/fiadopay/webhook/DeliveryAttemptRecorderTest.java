@@ -0,0 +1,39 @@
+package edu.ucsal.fiadopay.webhook;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("DeliveryAttemptRecorder - Testes Unitários")
+class DeliveryAttemptRecorderTest {
+
+    @Test
+    @DisplayName("Lote que falhou no banco deve voltar para a fila e ser regravado")
+    @SuppressWarnings("unchecked")
+    void shouldRequeueBatchWhenWriteFails() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        when(jdbc.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("banco fora do ar"))
+                .thenReturn(new int[]{1, 1});
+        DeliveryAttemptRecorder recorder = new DeliveryAttemptRecorder(jdbc, 10, 10, 100);
+        try {
+            recorder.record(0, 1L, 1, false, Instant.now());
+            recorder.record(0, 2L, 1, true, Instant.now());
+
+            verify(jdbc, timeout(5_000).times(2)).batchUpdate(anyString(), anyList());
+            assertEquals(0, recorder.pending());
+            // A segunda chamada (a que deu certo) levou as duas entregas
+            verify(jdbc, atLeastOnce()).batchUpdate(anyString(), (List<Object[]>) argThat(args -> ((List<?>) args).size() == 2));
+        } finally {
+            recorder.stop();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package edu.ucsal.fiadopay.webhook;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HostGate - Testes Unitários")
+class HostGateTest {
+
+    @Test
+    @DisplayName("Executor recusando não deve prender a vaga do host")
+    void shouldReleaseSlotWhenExecutorRejects() {
+        HostGate gate = new HostGate("h", null, 1, 10, r -> {
+            throw new RejectedExecutionException("shutdown");
+        });
+        for (int i = 0; i < 5; i++) {
+            assertFalse(gate.submit(() -> {}));
+            assertEquals(0, gate.inFlight());
+        }
+    }
+
+    @Test
+    @DisplayName("Recusa ao despachar a fila deve devolver a vaga")
+    void shouldReleaseSlotWhenQueuedDispatchIsRejected() {
+        List<Runnable> accepted = new ArrayList<>();
+        boolean[] shutdown = {false};
+        HostGate gate = new HostGate("h", null, 1, 10, r -> {
+            if (shutdown[0]) throw new RejectedExecutionException("shutdown");
+            accepted.add(r);
+        });
+        assertTrue(gate.submit(() -> {}));
+        assertTrue(gate.submit(() -> {}));  // fila do host
+        assertEquals(1, gate.queued());
+
+        shutdown[0] = true;
+        gate.release();
+        assertEquals(0, gate.inFlight());
+        assertEquals(0, gate.queued());
+        assertEquals(1, accepted.size());
+    }
+}
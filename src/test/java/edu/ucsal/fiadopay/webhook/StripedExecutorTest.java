@@ -0,0 +1,142 @@
+package edu.ucsal.fiadopay.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StripedExecutor - Testes Unitários")
+class StripedExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Tarefas da mesma chave devem terminar na ordem, mesmo concluindo em outra thread")
+    void shouldKeepOrderPerKey() throws InterruptedException {
+        StripedExecutor striped = new StripedExecutor(4, 1_000, pool);
+        int keys = 16, perKey = 50;
+        Map<Integer, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(keys * perKey);
+
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                int key = k, seq = i;
+                assertTrue(striped.submit(key, done -> {
+                    seen.computeIfAbsent(key, x -> Collections.synchronizedList(new ArrayList<>())).add(seq);
+                    // Conclusão assíncrona, como um retry na timing wheel
+                    timer.schedule(() -> {
+                        latch.countDown();
+                        done.run();
+                    }, seq % 3, TimeUnit.MILLISECONDS);
+                }));
+            }
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int k = 0; k < keys; k++) {
+            List<Integer> order = seen.get(k);
+            for (int i = 0; i < perKey; i++) assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Não deve haver duas tarefas da mesma listra rodando ao mesmo tempo")
+    void shouldRunOneTaskPerStripe() throws InterruptedException {
+        StripedExecutor striped = new StripedExecutor(1, 1_000, pool);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(200);
+
+        for (int i = 0; i < 200; i++) {
+            striped.submit("k" + i, done -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                running.decrementAndGet();
+                latch.countDown();
+                done.run();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("Fila da listra cheia deve recusar; exceção na tarefa não deve travar a listra")
+    void shouldRejectWhenFullAndSurviveFailures() throws InterruptedException {
+        StripedExecutor striped = new StripedExecutor(1, 2, pool);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(striped.submit("a", done -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("falha simulada");
+        }));
+        assertTrue(striped.submit("a", done -> done.run()));
+        CountDownLatch last = new CountDownLatch(1);
+        assertTrue(striped.submit("a", done -> {
+            last.countDown();
+            done.run();
+        }));
+        assertFalse(striped.submit("a", done -> done.run()));
+        assertEquals(2, striped.queued());
+
+        release.countDown();
+        assertTrue(last.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Tarefa estacionada deve liberar a listra para outras chaves, mas não para a própria")
+    void shouldFreeStripeWhileParked() throws InterruptedException {
+        StripedExecutor striped = new StripedExecutor(1, 1_000, pool);
+        Runnable[] parkedDone = new Runnable[1];
+        CountDownLatch parked = new CountDownLatch(1);
+        CountDownLatch otherKey = new CountDownLatch(1);
+        CountDownLatch sameKey = new CountDownLatch(1);
+
+        // Merchant fora do ar: a entrega estaciona esperando o retry e só termina depois
+        assertTrue(striped.submit("down", 1L, (done, park) -> {
+            parkedDone[0] = done;
+            park.run();
+            parked.countDown();
+        }));
+        assertTrue(parked.await(2, TimeUnit.SECONDS));
+        assertTrue(striped.submit("down", 1L, (done, park) -> {
+            sameKey.countDown();
+            done.run();
+        }));
+        assertTrue(striped.submit("up", 2L, (done, park) -> {
+            otherKey.countDown();
+            done.run();
+        }));
+
+        assertTrue(otherKey.await(2, TimeUnit.SECONDS));
+        assertFalse(sameKey.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, striped.queued());
+
+        parkedDone[0].run();
+        assertTrue(sameKey.await(2, TimeUnit.SECONDS));
+    }
+}
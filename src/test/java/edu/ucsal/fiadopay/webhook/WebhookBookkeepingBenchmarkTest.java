@@ -0,0 +1,92 @@
+package edu.ucsal.fiadopay.webhook;
+
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Vazão da contabilidade de tentativas de webhook: save() por tentativa (layout anterior)
+ * vs. DeliveryAttemptRecorder (UPDATE em JDBC batch).
+ * Rodar com: mvn test -Pbenchmark -Dbench.deliveries=20000
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "fiadopay.webhook.recorder.flush-interval-ms=10000"})
+@DisplayName("Benchmark - Contabilidade de entregas de webhook")
+class WebhookBookkeepingBenchmarkTest {
+
+    private static final int DELIVERIES = Integer.getInteger("bench.deliveries", 5_000);
+    private static final int ATTEMPTS = 3;
+
+    @Autowired
+    private WebhookDeliveryRepository deliveries;
+
+    @Autowired
+    private DeliveryAttemptRecorder recorder;
+
+    @Autowired
+    private WebhookPayloadCodec codec;
+
+    @Test
+    @DisplayName("save() por tentativa vs. gravação em lote")
+    void compareBookkeepingThroughput() {
+        List<WebhookDelivery> rows = insert(DELIVERIES);
+        long ops = (long) DELIVERIES * ATTEMPTS;
+
+        // Aquecimento do caminho JDBC/Hibernate
+        rows.stream().limit(500).forEach(deliveries::save);
+
+        long t0 = System.nanoTime();
+        for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+            for (WebhookDelivery d : rows) {
+                WebhookDelivery loaded = deliveries.findById(d.getId()).orElseThrow();
+                loaded.setAttempts(attempt);
+                loaded.setLastAttemptAt(Instant.now());
+                deliveries.save(loaded);
+            }
+        }
+        long perSaveNs = System.nanoTime() - t0;
+
+        List<WebhookDelivery> fresh = insert(DELIVERIES);
+        long t1 = System.nanoTime();
+        for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+            for (WebhookDelivery d : fresh) {
+                recorder.record(0, d.getId(), attempt, attempt == ATTEMPTS, Instant.now());
+            }
+            recorder.flush();
+        }
+        long batchedNs = System.nanoTime() - t1;
+
+        System.out.printf("%n[bench] webhook bookkeeping, %d entregas x %d tentativas%n", DELIVERIES, ATTEMPTS);
+        System.out.printf("[bench]   save() por tentativa : %,10.0f tentativas/s%n", ops / (perSaveNs / 1e9));
+        System.out.printf("[bench]   recorder em lote     : %,10.0f tentativas/s (%.1fx)%n",
+                ops / (batchedNs / 1e9), (double) perSaveNs / batchedNs);
+
+        WebhookDelivery sample = deliveries.findById(fresh.get(fresh.size() - 1).getId()).orElseThrow();
+        assertEquals(ATTEMPTS, sample.getAttempts());
+        assertTrue(sample.isDelivered());
+    }
+
+    private List<WebhookDelivery> insert(int n) {
+        List<WebhookDelivery> batch = new ArrayList<>(n);
+        IntStream.range(0, n).forEach(i -> batch.add(WebhookDelivery.builder()
+                .eventId("evt_b" + i)
+                .eventType("payment.updated")
+                .paymentId("pay_b" + i)
+                .targetUrl("http://localhost:1/hook")
+                .payloadData(codec.pack(Map.of("status", "APPROVED", "occurredAt", Instant.now().toString())))
+                .build()));
+        return deliveries.saveAll(batch);
+    }
+}
@@ -0,0 +1,230 @@
+package edu.ucsal.fiadopay.webhook;
+
+import edu.ucsal.fiadopay.config.FairnessProperties;
+import edu.ucsal.fiadopay.config.ShardingProperties;
+import edu.ucsal.fiadopay.config.WebhookProperties;
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.domain.Payment;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.repo.WebhookPayloadRepository;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WebhookDispatcher - Testes Unitários")
+class WebhookDispatcherTest {
+
+    private static final long OPEN_MS = 500;
+
+    @Test
+    @DisplayName("Entrega recusada pelo circuito aberto não deve gastar tentativa; a sonda depois conta uma")
+    void breakerRejectionShouldNotConsumeAttempt() throws Exception {
+        WebhookProperties props = new WebhookProperties();
+        props.getBreaker().setFailureThreshold(1);
+        props.getBreaker().setOpenDuration(Duration.ofMillis(OPEN_MS));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ShardRouter shards = new ShardRouter(new ShardingProperties());
+        WebhookHostRegistry hosts = new WebhookHostRegistry(props, executor);
+        DeliveryAttemptRecorder recorder = mock(DeliveryAttemptRecorder.class);
+        WebhookPayloadCodec codec = mock(WebhookPayloadCodec.class);
+        when(codec.encode(any(), any(), any())).thenReturn("{}".getBytes());
+        WebhookDispatcher dispatcher = new WebhookDispatcher(mock(MerchantRepository.class),
+                mock(WebhookDeliveryRepository.class), mock(WebhookPayloadRepository.class),
+                mock(TransactionTemplate.class), executor, codec, hosts, recorder, props,
+                mock(WebhookSequencer.class), shards, new FairnessProperties(), "secret");
+        try {
+            // Porta 1: ninguém escuta, a sonda falha rápido com conexão recusada
+            CircuitBreaker breaker = hosts.gate("localhost:1").breaker();
+            breaker.onFailure(System.currentTimeMillis());
+            assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+            WebhookDelivery d = WebhookDelivery.builder().id(7L).eventId("evt_1").eventType("payment.updated")
+                    .paymentId("pay_1").merchantId(1L).targetUrl("http://localhost:1/hook")
+                    .payloadData(new byte[] {1}).createdAt(Instant.now()).build();
+            assertTrue(dispatcher.replay(d, () -> {}));
+
+            // Enquanto o circuito está aberto a entrega só reagenda, sem HTTP e sem registro
+            Thread.sleep(OPEN_MS / 2);
+            assertEquals(0, d.getAttempts());
+            verifyNoInteractions(recorder);
+
+            // Passado o tempo aberto, a sonda sai e é a primeira tentativa da entrega
+            verify(recorder, timeout(5_000)).record(anyInt(), eq(7L), eq(1), eq(false), any());
+            verify(recorder, never()).record(anyInt(), eq(7L), eq(2), anyBoolean(), any());
+        } finally {
+            dispatcher.stop();
+            executor.shutdownNow();
+            shards.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Com o circuito sempre aberto a entrega deve desistir depois de max-deferral e liberar a chave")
+    void breakerDeferralShouldStopAtMaxDeferral() throws Exception {
+        WebhookProperties props = new WebhookProperties();
+        props.setTimerTickMs(10);
+        props.getBreaker().setFailureThreshold(1);
+        props.getBreaker().setOpenDuration(Duration.ofMinutes(10));
+        props.getBreaker().setMaxDeferral(Duration.ofMillis(300));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ShardRouter shards = new ShardRouter(new ShardingProperties());
+        WebhookHostRegistry hosts = new WebhookHostRegistry(props, executor);
+        DeliveryAttemptRecorder recorder = mock(DeliveryAttemptRecorder.class);
+        WebhookDispatcher dispatcher = new WebhookDispatcher(mock(MerchantRepository.class),
+                mock(WebhookDeliveryRepository.class), mock(WebhookPayloadRepository.class),
+                mock(TransactionTemplate.class), executor, mock(WebhookPayloadCodec.class), hosts, recorder, props,
+                mock(WebhookSequencer.class), shards, new FairnessProperties(), "secret");
+        try {
+            hosts.gate("localhost:1").breaker().onFailure(System.currentTimeMillis());
+
+            WebhookDelivery d = WebhookDelivery.builder().id(8L).eventId("evt_2").eventType("payment.updated")
+                    .paymentId("pay_2").merchantId(1L).targetUrl("http://localhost:1/hook")
+                    .payloadData(new byte[] {1}).createdAt(Instant.now()).build();
+            CountDownLatch finished = new CountDownLatch(1);
+            long start = System.nanoTime();
+            assertTrue(dispatcher.replay(d, finished::countDown));
+            // Adiada, a entrega continua com o dispatcher: um replay pelo banco deve pulá-la
+            assertTrue(dispatcher.isLive(8L));
+
+            // Nada de esperar os 10 minutos do circuito: no prazo a entrega vira uma falha e o replay termina
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+            assertFalse(d.isDelivered());
+            verify(recorder).record(anyInt(), eq(8L), eq(1), eq(false), any());
+            assertNull(d.getDeferredSince());
+            assertFalse(dispatcher.isLive(8L));
+        } finally {
+            dispatcher.stop();
+            executor.shutdownNow();
+            shards.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Eventos ainda na listra no shutdown devem estar gravados, com a sequence dada na publicação")
+    void shutdownWithBacklogShouldKeepQueuedEventsInDatabase() throws Exception {
+        WebhookProperties props = new WebhookProperties();
+        props.getOrdering().setStripes(1);
+        // Uma thread só: presa no bloqueio abaixo, a listra acumula os eventos seguintes
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ShardRouter shards = new ShardRouter(new ShardingProperties());
+        MerchantRepository merchants = mock(MerchantRepository.class);
+        when(merchants.findById(1L)).thenReturn(Optional.of(Merchant.builder().id(1L)
+                .webhookUrl("http://localhost:1/hook").build()));
+        WebhookDeliveryRepository deliveries = mock(WebhookDeliveryRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(deliveries.save(any())).thenAnswer(inv -> {
+            WebhookDelivery d = inv.getArgument(0);
+            d.setId(ids.incrementAndGet());
+            return d;
+        });
+        TransactionTemplate tx = mock(TransactionTemplate.class);
+        when(tx.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        WebhookSequencer sequencer = mock(WebhookSequencer.class);
+        when(sequencer.next(anyString(), anyBoolean())).thenReturn(1L);
+        WebhookDispatcher dispatcher = new WebhookDispatcher(merchants, deliveries,
+                mock(WebhookPayloadRepository.class), tx, executor, mock(WebhookPayloadCodec.class),
+                new WebhookHostRegistry(props, executor), mock(DeliveryAttemptRecorder.class), props,
+                sequencer, shards, new FairnessProperties(), "secret");
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int i = 0; i < 3; i++) {
+                dispatcher.publish(Payment.builder().id("pay_" + i).merchantId(1L).method("PIX")
+                        .status(Payment.Status.APPROVED).build());
+            }
+            assertEquals(2, dispatcher.backlog().get(1L));
+
+            // Shutdown com a listra cheia: o próximo despacho é recusado e a listra é descartada
+            executor.shutdown();
+            release.countDown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertTrue(dispatcher.backlog().isEmpty());
+
+            // Mesmo assim as três linhas já estavam no banco, não entregues e com sequence
+            ArgumentCaptor<WebhookDelivery> saved = ArgumentCaptor.forClass(WebhookDelivery.class);
+            verify(deliveries, times(3)).save(saved.capture());
+            List<WebhookDelivery> rows = saved.getAllValues();
+            assertEquals(List.of("pay_0", "pay_1", "pay_2"), rows.stream().map(WebhookDelivery::getPaymentId).toList());
+            rows.forEach(d -> assertEquals(1L, d.getSequence()));
+            rows.subList(1, 3).forEach(d -> assertEquals(0, d.getAttempts()));
+        } finally {
+            dispatcher.stop();
+            executor.shutdownNow();
+            shards.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Eventos recusados pela listra cheia devem entrar depois, na ordem da chave")
+    void fullStripeShouldRetryInOrder() throws Exception {
+        WebhookProperties props = new WebhookProperties();
+        props.setMaxAttempts(1);
+        props.setTimerTickMs(5);
+        props.getBackoff().setBase(Duration.ofMillis(20));
+        props.getBackoff().setMax(Duration.ofMillis(50));
+        props.getOrdering().setKey(WebhookProperties.Ordering.Key.MERCHANT);
+        props.getOrdering().setStripes(1);
+        props.getOrdering().setMaxQueuedPerMerchant(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ShardRouter shards = new ShardRouter(new ShardingProperties());
+        MerchantRepository merchants = mock(MerchantRepository.class);
+        when(merchants.findById(1L)).thenReturn(Optional.of(Merchant.builder().id(1L)
+                .webhookUrl("http://localhost:1/hook").build()));
+        WebhookDeliveryRepository deliveries = mock(WebhookDeliveryRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(deliveries.save(any())).thenAnswer(inv -> {
+            WebhookDelivery d = inv.getArgument(0);
+            d.setId(ids.incrementAndGet());
+            return d;
+        });
+        TransactionTemplate tx = mock(TransactionTemplate.class);
+        when(tx.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        DeliveryAttemptRecorder recorder = mock(DeliveryAttemptRecorder.class);
+        WebhookDispatcher dispatcher = new WebhookDispatcher(merchants, deliveries,
+                mock(WebhookPayloadRepository.class), tx, executor, mock(WebhookPayloadCodec.class),
+                new WebhookHostRegistry(props, executor), recorder, props,
+                mock(WebhookSequencer.class), shards, new FairnessProperties(), "secret");
+        try {
+            // Uma chave só (MERCHANT): um evento rodando, um na listra e os demais recusados
+            for (int i = 0; i < 5; i++) {
+                dispatcher.publish(Payment.builder().id("pay_" + i).merchantId(1L).method("PIX")
+                        .status(Payment.Status.APPROVED).build());
+            }
+
+            var inOrder = inOrder(recorder);
+            for (long id = 1; id <= 5; id++) {
+                inOrder.verify(recorder, timeout(5_000)).record(anyInt(), eq(id), eq(1), eq(false), any());
+            }
+        } finally {
+            dispatcher.stop();
+            executor.shutdownNow();
+            shards.stop();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package edu.ucsal.fiadopay.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.format.PayloadMappers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tamanho de linha e memória do H2 com N entregas: layout anterior (payload JSON em CLOB + assinatura
+ * Base64) vs. layout compacto (data em Smile num VARBINARY; JSON e assinatura só no envio).
+ * Rodar com: mvn test -Pbenchmark -Dbench.rows=1000000 (padrão: 1 milhão)
+ */
+@Tag("benchmark")
+@DisplayName("Benchmark - Footprint do payload de webhook")
+class WebhookPayloadFootprintBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("bench.rows", 1_000_000);
+    private static final int BATCH = 1_000;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final WebhookPayloadCodec codec = new WebhookPayloadCodec(new PayloadMappers(json));
+
+    @Test
+    @DisplayName("Layout anterior vs. compacto")
+    void compareFootprint() throws Exception {
+        Result legacy = measure("legacy", """
+                CREATE TABLE webhook_delivery (
+                  id BIGINT PRIMARY KEY, event_id VARCHAR(255), event_type VARCHAR(255), payment_id VARCHAR(255),
+                  target_url VARCHAR(255), signature VARCHAR(255), attempts INT NOT NULL, delivered BOOLEAN NOT NULL,
+                  last_attempt_at TIMESTAMP(6) WITH TIME ZONE, payload CHARACTER LARGE OBJECT)""",
+                "INSERT INTO webhook_delivery VALUES (?,?,?,?,?,?,?,?,?,?)",
+                "OCTET_LENGTH(signature) + OCTET_LENGTH(payload)", true);
+
+        Result compact = measure("compact", """
+                CREATE TABLE webhook_delivery (
+                  id BIGINT PRIMARY KEY, event_id VARCHAR(255), event_type VARCHAR(255), payment_id VARCHAR(255),
+                  target_url VARCHAR(255), attempts INT NOT NULL, delivered BOOLEAN NOT NULL,
+                  last_attempt_at TIMESTAMP(6) WITH TIME ZONE, payload_data VARBINARY(2048))""",
+                "INSERT INTO webhook_delivery VALUES (?,?,?,?,?,?,?,?,?)",
+                "OCTET_LENGTH(payload_data)", false);
+
+        System.out.printf("%n[bench] webhook payload footprint, %,d entregas%n", ROWS);
+        print(legacy);
+        print(compact);
+        System.out.printf("[bench]   redução: payload %.1fx, linha %.1fx, heap do H2 %.1fx%n",
+                legacy.avgPayloadBytes / compact.avgPayloadBytes,
+                legacy.avgRowBytes / compact.avgRowBytes,
+                (double) legacy.heapBytes / Math.max(1, compact.heapBytes));
+
+        assertTrue(compact.avgPayloadBytes < legacy.avgPayloadBytes);
+        assertTrue(compact.avgRowBytes < legacy.avgRowBytes);
+    }
+
+    private Result measure(String name, String ddl, String insert, String payloadColumnsSize,
+                           boolean legacyLayout) throws Exception {
+        String url = "jdbc:h2:mem:footprint_" + name;
+        long heapBefore = usedHeap();
+        long payloadBytes = 0;
+        try (Connection c = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement st = c.createStatement()) {
+                st.execute(ddl);
+            }
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(insert)) {
+                for (int i = 1; i <= ROWS; i++) {
+                    String eventId = "evt_" + Integer.toHexString(0x10000000 + i);
+                    String paymentId = "pay_" + Integer.toHexString(0x20000000 + i);
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("status", i % 7 == 0 ? "DECLINED" : "APPROVED");
+                    data.put("occurredAt", Instant.now().toString());
+
+                    int col = 1;
+                    ps.setLong(col++, i);
+                    ps.setString(col++, eventId);
+                    ps.setString(col++, "payment.updated");
+                    ps.setString(col++, paymentId);
+                    ps.setString(col++, "https://merchant-" + (i % 500) + ".example.com/webhooks/fiadopay");
+                    if (legacyLayout) {
+                        Map<String, Object> fullData = new LinkedHashMap<>();
+                        fullData.put("paymentId", paymentId);
+                        fullData.putAll(data);
+                        String payload = json.writeValueAsString(
+                                Map.of("id", eventId, "type", "payment.updated", "data", fullData));
+                        ps.setString(col++, Base64.getEncoder().encodeToString(new byte[32])); // HMAC-SHA256
+                        ps.setInt(col++, 1);
+                        ps.setBoolean(col++, true);
+                        ps.setTimestamp(col++, Timestamp.from(Instant.now()));
+                        ps.setString(col, payload);
+                        payloadBytes += payload.getBytes(StandardCharsets.UTF_8).length + 44;
+                    } else {
+                        byte[] packed = codec.pack(data);
+                        ps.setInt(col++, 1);
+                        ps.setBoolean(col++, true);
+                        ps.setTimestamp(col++, Timestamp.from(Instant.now()));
+                        ps.setBytes(col, packed);
+                        payloadBytes += packed.length;
+                    }
+                    ps.addBatch();
+                    if (i % BATCH == 0) {
+                        ps.executeBatch();
+                        c.commit();
+                    }
+                }
+                ps.executeBatch();
+                c.commit();
+            }
+            long heapBytes = usedHeap() - heapBefore;
+            // Tamanho lógico médio da linha (soma dos bytes de cada coluna, medido pelo próprio H2)
+            double rowBytes;
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT AVG(8 + OCTET_LENGTH(event_id) + OCTET_LENGTH(event_type)"
+                         + " + OCTET_LENGTH(payment_id) + OCTET_LENGTH(target_url) + 4 + 1 + 12 + "
+                         + payloadColumnsSize + ") FROM webhook_delivery")) {
+                rs.next();
+                rowBytes = rs.getDouble(1);
+            }
+            try (Statement st = c.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+            }
+            return new Result(name, (double) payloadBytes / ROWS, rowBytes, heapBytes);
+        }
+    }
+
+    private static void print(Result r) {
+        System.out.printf("[bench]   %-8s payload+assinatura %6.1f B | linha %6.1f B | heap do H2 %,6d MB (%,5.0f B/linha)%n",
+                r.name, r.avgPayloadBytes, r.avgRowBytes, r.heapBytes >> 20, (double) r.heapBytes / ROWS);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private record Result(String name, double avgPayloadBytes, double avgRowBytes, long heapBytes) {}
+}
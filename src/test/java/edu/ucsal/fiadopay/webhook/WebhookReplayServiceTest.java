@@ -0,0 +1,204 @@
+package edu.ucsal.fiadopay.webhook;
+
+import edu.ucsal.fiadopay.config.ShardingProperties;
+import edu.ucsal.fiadopay.config.WebhookProperties;
+import edu.ucsal.fiadopay.domain.Merchant;
+import edu.ucsal.fiadopay.domain.WebhookDelivery;
+import edu.ucsal.fiadopay.dto.request.ReplayRequest;
+import edu.ucsal.fiadopay.dto.response.ReplayStatus;
+import edu.ucsal.fiadopay.repo.MerchantRepository;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WebhookReplayService - Testes Unitários")
+class WebhookReplayServiceTest {
+
+    private static final Instant FROM = Instant.parse("2025-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2025-01-02T00:00:00Z");
+
+    private final WebhookDeliveryRepository deliveries = mock(WebhookDeliveryRepository.class);
+    private final MerchantRepository merchants = mock(MerchantRepository.class);
+    private final WebhookDispatcher dispatcher = mock(WebhookDispatcher.class);
+    private final ShardRouter shards = new ShardRouter(new ShardingProperties());
+    private final List<WebhookDelivery> table = new ArrayList<>();
+    private final List<Runnable> pending = Collections.synchronizedList(new ArrayList<>());
+    private WebhookReplayService service;
+
+    @BeforeEach
+    void setUp() {
+        when(merchants.findById(1L)).thenReturn(Optional.of(
+                Merchant.builder().id(1L).webhookUrl("http://lojista/hook").build()));
+        // Paginação por chave (createdAt, id) sobre a "tabela" em memória
+        when(deliveries.findForReplay(eq(1L), eq("payment.updated"), any(), eq(TO), any(), anyLong(), any()))
+                .thenAnswer(inv -> {
+                    Instant afterCreatedAt = inv.getArgument(4);
+                    long afterId = inv.getArgument(5);
+                    Pageable page = inv.getArgument(6);
+                    return table.stream()
+                            .filter(d -> d.getCreatedAt().isAfter(afterCreatedAt)
+                                    || (d.getCreatedAt().equals(afterCreatedAt) && d.getId() > afterId))
+                            .limit(page.getPageSize())
+                            .toList();
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+        shards.stop();
+    }
+
+    private void service(int pageSize, int maxInFlight, double maxPerSecond) {
+        WebhookProperties props = new WebhookProperties();
+        props.getReplay().setPageSize(pageSize);
+        props.getReplay().setMaxInFlight(maxInFlight);
+        props.getReplay().setMaxPerSecond(maxPerSecond);
+        service = new WebhookReplayService(deliveries, merchants, dispatcher, shards, props);
+    }
+
+    private void deliveries(int n) {
+        // Pares com o mesmo createdAt, para o desempate pelo id entrar no cursor
+        LongStream.rangeClosed(1, n).forEach(id -> table.add(WebhookDelivery.builder()
+                .id(id).merchantId(1L).paymentId("pay_" + id).eventType("payment.updated")
+                .createdAt(FROM.plusSeconds((id + 1) / 2)).build()));
+    }
+
+    private void deliverImmediately() {
+        when(dispatcher.replay(any(), any())).thenAnswer(inv -> {
+            WebhookDelivery d = inv.getArgument(0);
+            d.setDelivered(true);
+            ((Runnable) inv.getArgument(1)).run();
+            return true;
+        });
+    }
+
+    private ReplayStatus await(String id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ReplayStatus s = service.status(id).orElseThrow();
+            if (s.finishedAt() != null) return s;
+            Thread.sleep(50);
+        }
+        fail("replay não terminou");
+        return null;
+    }
+
+    private static ReplayRequest request(Double maxPerSecond) {
+        return new ReplayRequest(1L, FROM, TO, ReplayRequest.DeliveryState.ALL, maxPerSecond, null);
+    }
+
+    @Test
+    @DisplayName("Deve percorrer todas as páginas pelo cursor (createdAt, id), sem repetir nem pular")
+    void shouldPageThroughAllDeliveries() throws InterruptedException {
+        service(2, 10, 1_000);
+        deliveries(5);
+        List<Long> replayed = Collections.synchronizedList(new ArrayList<>());
+        when(dispatcher.replay(any(), any())).thenAnswer(inv -> {
+            WebhookDelivery d = inv.getArgument(0);
+            replayed.add(d.getId());
+            d.setDelivered(true);
+            ((Runnable) inv.getArgument(1)).run();
+            return true;
+        });
+
+        ReplayStatus s = await(service.start(request(null)).id());
+
+        assertEquals("COMPLETED", s.status());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), replayed);
+        assertEquals(5, s.matched());
+        assertEquals(5, s.delivered());
+        assertNull(s.error());
+        // Páginas de 2: (from, -inf), (t1, 2), (t2, 4)
+        verify(deliveries).findForReplay(anyLong(), any(), any(), any(), eq(FROM), eq(Long.MIN_VALUE), any());
+        verify(deliveries).findForReplay(anyLong(), any(), any(), any(), eq(FROM.plusSeconds(1)), eq(2L), any());
+        verify(deliveries).findForReplay(anyLong(), any(), any(), any(), eq(FROM.plusSeconds(2)), eq(4L), any());
+        verifyNoMoreInteractions(deliveries);
+    }
+
+    @Test
+    @DisplayName("Deve respeitar o maxPerSecond do pedido")
+    void shouldRateLimit() throws InterruptedException {
+        service(3, 10, 1_000);
+        deliveries(11);
+        deliverImmediately();
+
+        long t0 = System.nanoTime();
+        ReplayStatus s = await(service.start(request(20.0)).id());
+        long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+
+        assertEquals("COMPLETED", s.status());
+        assertEquals(11, s.delivered());
+        // 20/s: a primeira sai na hora, as outras 10 a cada 50 ms
+        assertTrue(elapsedMs >= 450, "durou " + elapsedMs + " ms");
+    }
+
+    @Test
+    @DisplayName("Cancelar deve parar de ler e de enfileirar; o que já saiu termina")
+    void shouldStopOnCancel() throws InterruptedException {
+        service(2, 1, 1_000);
+        deliveries(6);
+        when(dispatcher.replay(any(), any())).thenAnswer(inv -> {
+            pending.add(inv.getArgument(1));  // entrega presa: segura a única vaga de max-in-flight
+            return true;
+        });
+
+        String id = service.start(request(null)).id();
+        for (int i = 0; i < 100 && pending.isEmpty(); i++) Thread.sleep(20);
+        service.cancel(id);
+        Thread.sleep(200);
+        pending.forEach(Runnable::run);
+        ReplayStatus s = await(id);
+
+        assertEquals("CANCELLED", s.status());
+        assertEquals(1, s.enqueued());
+        verify(dispatcher, times(1)).replay(any(), any());
+        verify(deliveries, times(1)).findForReplay(anyLong(), any(), any(), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Entregas que o dispatcher ainda tenta em memória não devem ser reenviadas")
+    void shouldSkipLiveDeliveries() throws InterruptedException {
+        service(10, 10, 1_000);
+        deliveries(4);
+        deliverImmediately();
+        when(dispatcher.isLive(2L)).thenReturn(true);  // esperando retry no timer do dispatcher
+
+        ReplayStatus s = await(service.start(request(null)).id());
+
+        assertEquals("COMPLETED", s.status());
+        assertEquals(4, s.matched());
+        assertEquals(3, s.delivered());
+        assertEquals(1, s.skipped());
+        verify(dispatcher, never()).replay(argThat(d -> d.getId() == 2L), any());
+    }
+
+    @Test
+    @DisplayName("Falha na leitura deve deixar o replay FAILED com o motivo")
+    void shouldExposeFailureCause() throws InterruptedException {
+        service(2, 10, 1_000);
+        reset(deliveries);
+        when(deliveries.findForReplay(anyLong(), any(), any(), any(), any(), anyLong(), any()))
+                .thenThrow(new DataAccessResourceFailureException("banco fora do ar"));
+
+        ReplayStatus s = await(service.start(request(null)).id());
+
+        assertEquals("FAILED", s.status());
+        assertEquals("DataAccessResourceFailureException: banco fora do ar", s.error());
+    }
+}
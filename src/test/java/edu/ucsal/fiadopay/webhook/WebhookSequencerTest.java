@@ -0,0 +1,75 @@
+package edu.ucsal.fiadopay.webhook;
+
+import edu.ucsal.fiadopay.config.ShardingProperties;
+import edu.ucsal.fiadopay.repo.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.shard.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WebhookSequencer - Testes Unitários")
+class WebhookSequencerTest {
+
+    private final WebhookDeliveryRepository deliveries = mock(WebhookDeliveryRepository.class);
+    private final ShardRouter shards = new ShardRouter(new ShardingProperties());
+    // Cache de ociosos com uma entrada só: qualquer outra chave despeja a anterior
+    private final WebhookSequencer sequencer = new WebhookSequencer(deliveries, shards, 1, Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        shards.stop();
+    }
+
+    @Test
+    @DisplayName("Chave nova deve começar em 1 sem consultar o banco")
+    void freshKeyShouldNotQueryDatabase() {
+        assertEquals(1, sequencer.next("pay_a", true));
+        assertEquals(2, sequencer.next("pay_a", false));
+        sequencer.release("pay_a");
+        sequencer.release("pay_a");
+        assertEquals(3, sequencer.next("pay_a", false));
+        verifyNoInteractions(deliveries);
+    }
+
+    @Test
+    @DisplayName("Chave com eventos em andamento não deve ser despejada, por mais chaves que passem")
+    void keyWithPendingEventsShouldStayPinned() {
+        assertEquals(1, sequencer.next("pay_a", true));
+        for (int i = 0; i < 100; i++) {
+            String other = "pay_" + i;
+            sequencer.next(other, true);
+            sequencer.release(other);
+        }
+        // Sem o pin, o banco (que ainda não tem a linha do evento 1) faria a chave recomeçar em 1
+        assertEquals(2, sequencer.next("pay_a", false));
+        verify(deliveries, never()).maxSequenceByPaymentId(anyString());
+    }
+
+    @Test
+    @DisplayName("Chave ociosa despejada deve continuar do maior sequence gravado")
+    void evictedKeyShouldResumeFromDatabase() {
+        when(deliveries.maxSequenceByPaymentId("pay_a")).thenReturn(7L);
+        sequencer.next("pay_a", true);
+        sequencer.release("pay_a");
+        sequencer.next("pay_b", true);
+        sequencer.release("pay_b");
+
+        assertEquals(8, sequencer.next("pay_a", false));
+        verify(deliveries).maxSequenceByPaymentId("pay_a");
+    }
+
+    @Test
+    @DisplayName("Chave de merchant deve partir do maior sequence do merchant")
+    void merchantKeyShouldSeedFromMerchantMax() {
+        when(deliveries.maxSequenceByMerchantId(42L)).thenReturn(10L);
+        assertEquals(11, sequencer.next(WebhookSequencer.MERCHANT_PREFIX + 42, false));
+        assertEquals(12, sequencer.next(WebhookSequencer.MERCHANT_PREFIX + 42, false));
+        verify(deliveries, times(1)).maxSequenceByMerchantId(42L);
+    }
+}